@@ -38,6 +38,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // RequestRunner logs through android.util.Log, which is a stub in unit tests
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -7,6 +7,7 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.view.WindowManager;
 import android.widget.Toast;
 import android.util.Log;
@@ -20,17 +21,40 @@ import androidx.core.app.NotificationCompat;
 import com.example.mlbbop.managers.OverlayActionListener;
 import com.example.mlbbop.managers.OverlayWindowManager;
 import com.example.mlbbop.managers.ScreenCaptureManager;
+import com.example.mlbbop.managers.SettingsManager;
 import com.example.mlbbop.managers.GeminiHelper;
+import com.example.mlbbop.managers.HeroTextRecognizer;
+import com.example.mlbbop.managers.AnalysisResult;
+import com.example.mlbbop.managers.LatencyTracer;
+import com.example.mlbbop.managers.ModelClientRegistry;
+import com.example.mlbbop.managers.OptionsTagExtractor;
+import com.example.mlbbop.managers.RosterRecognizer;
+import com.example.mlbbop.managers.SlotLayout;
+import com.example.mlbbop.managers.TeamRoster;
 
 public class MlbbOverlayService extends Service implements OverlayActionListener {
     private static final String TAG = "MlbbOverlayService";
     private static final String CHANNEL_ID = "MlbbOverlayChannel";
     public static boolean isProjectionActive = false;
+    private static final long HIDE_FALLBACK_MS = 300; // Used only if no frame callback arrives
+    private static final long AUTO_SEND_MIN_INTERVAL_MS = 30_000; // Between automatic requests
+    private static final long AUTO_RECHECK_MS = 2_000; // Between draft checks of unsettled scenes
 
     private OverlayWindowManager overlayManager;
     private ScreenCaptureManager captureManager;
     private GeminiHelper geminiHelper;
+    private RosterRecognizer rosterRecognizer;
+    private HeroTextRecognizer heroTextRecognizer;
     private Bitmap currentScreenshot;
+    private Bitmap analysisBitmap; // Screenshot Gemini may still be reading, null when idle
+    private ScreenCaptureManager.CaptureRequest pendingCapture;
+    private GeminiHelper.PreparedImage preparedImage; // Speculative encode of currentScreenshot
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean autoCheckRunning = false; // A scene is being checked for a draft
+    private long lastAutoCheckMs = Long.MIN_VALUE / 2;
+    private long lastAutoSendMs = Long.MIN_VALUE / 2;
+    private float autoCaptureFps; // Settings continuous capture was last started with
+    private int sceneChangeThreshold;
 
     @Nullable
     @Override
@@ -47,6 +71,10 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
         overlayManager = new OverlayWindowManager(this, wm, this);
         captureManager = new ScreenCaptureManager(this);
         geminiHelper = new GeminiHelper(getApplicationContext());
+        ModelClientRegistry.prewarm(getApplicationContext()); // Connect before the first Send
+        heroTextRecognizer = new HeroTextRecognizer();
+        rosterRecognizer = new RosterRecognizer(this, SlotLayout.DRAFT, heroTextRecognizer);
+        rosterRecognizer.prepare();
 
         overlayManager.addHandleView();
 
@@ -62,6 +90,7 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
             if (resultCode != 0 && resultData != null) {
                 captureManager.startProjection(resultCode, resultData);
                 isProjectionActive = true;
+                syncAutoCapture();
                 // Ensure handle is visible if it was missing
                 overlayManager.addHandleView(); // Safe to call multiple times as it checks null
             }
@@ -82,20 +111,31 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
 
         Toast.makeText(this, "Capturing...", Toast.LENGTH_SHORT).show();
 
-        // Hide UI
-        overlayManager.setInvisible();
+        // Hide UI and start as soon as the compositor can no longer include it
+        LatencyTracer.begin(LatencyTracer.Pipeline.CAPTURE);
+        overlayManager.hideForCapture(HIDE_FALLBACK_MS, hiddenAtNanos -> {
+            LatencyTracer.mark(LatencyTracer.Stage.HIDE_OVERLAY);
+            // Repeated taps join the capture already in flight instead of queueing new ones
+            pendingCapture = captureManager.captureScreenshot(hiddenAtNanos,
+                    new ScreenCaptureManager.ScreenshotCallback() {
+                        @Override
+                        public void onScreenshotCaptured(Bitmap bitmap) {
+                            pendingCapture = null;
+                            // Restore UI
+                            overlayManager.setVisible(); // Restore state
+                            replaceScreenshot(bitmap);
+                            overlayManager.setSendEnabled(false); // Disable send until saved
+                        }
 
-        // Delay to ensure UI is gone from frame
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            captureManager.captureScreenshot(bitmap -> {
-                currentScreenshot = bitmap;
-                // Restore UI
-                overlayManager.setVisible(); // Restore state
-                overlayManager.updateResultImage(bitmap);
-                overlayManager.setSendEnabled(false); // Disable send until saved or validated? Plan said disable until
-                                                      // saved.
-            });
-        }, 300);
+                        @Override
+                        public void onCaptureTimeout() {
+                            pendingCapture = null;
+                            overlayManager.setVisible();
+                            Toast.makeText(MlbbOverlayService.this, "Capture timed out, try again", Toast.LENGTH_SHORT)
+                                    .show();
+                        }
+                    });
+        });
     }
 
     @Override
@@ -113,56 +153,54 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
     public void onSendRequest() {
         if (currentScreenshot == null)
             return;
+        if (analysisBitmap != null) {
+            // One analysis at a time: they share the ANALYZE trace and the reply being rendered
+            Toast.makeText(this, "Analysis already running", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        overlayManager.resetDataCache();
-        overlayManager.showLoading();
-        // Fake progress
-        // Fake progress for upload visualization
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            overlayManager.onUploadComplete(); // Visually switch to "Receiving" phase
-
-            geminiHelper.startNewSession(currentScreenshot, new GeminiHelper.GeminiCallback() {
-                @Override
-                public void onSuccess(String response) {
-                    new Handler(Looper.getMainLooper()).post(() -> {
-                        overlayManager.hideLoading();
-                        overlayManager.switchContent(R.layout.view_overlay_data);
+        GeminiHelper.PreparedImage prepared = beginAnalysis();
+        if (!SettingsManager.isOnDeviceRecognitionEnabled(this)) {
+            geminiHelper.startNewSession(prepared, new ReplyRenderer(true));
+            return;
+        }
 
-                        // Parse options
-                        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\[OPTIONS:(.*?)\\]");
-                        java.util.regex.Matcher matcher = pattern.matcher(response);
-
-                        String cleanResponse = response;
-                        java.util.List<String> options = new java.util.ArrayList<>();
-
-                        if (matcher.find()) {
-                            String optionsStr = matcher.group(1);
-                            if (optionsStr != null) {
-                                String[] rawOptions = optionsStr.split("\\|");
-                                for (String opt : rawOptions) {
-                                    options.add(opt.trim());
-                                }
-                            }
-                            // Remove the tag from display logic
-                            cleanResponse = matcher.replaceAll("").trim();
-                        }
+        // Slot by slot first (fast, and it knows the teams), then OCR of the whole screen, then the
+        // image. The encode keeps running meanwhile, so the image fallback only costs recognition time.
+        Bitmap screenshot = analysisBitmap;
+        rosterRecognizer.recognize(screenshot, roster -> analyse(roster, screenshot, prepared));
+    }
 
-                        overlayManager.appendChatMessage("Gemini: " + cleanResponse);
-                        overlayManager.updateQuickActions(options);
-                    });
-                }
+    // Marks currentScreenshot as the one being analysed and returns its encode
+    private GeminiHelper.PreparedImage beginAnalysis() {
+        LatencyTracer.begin(LatencyTracer.Pipeline.ANALYZE);
+        overlayManager.resetDataCache();
+        overlayManager.showLoading(); // Upload phase until the first chunk arrives
+        analysisBitmap = currentScreenshot;
 
-                @Override
-                public void onError(Throwable t) {
-                    new Handler(Looper.getMainLooper()).post(() -> {
-                        overlayManager.hideLoading();
-                        Toast.makeText(MlbbOverlayService.this, "Gemini Error: " + t.getMessage(), Toast.LENGTH_LONG)
-                                .show();
-                    });
-                }
-            });
-        }, 1000); // 1s delay to show loading bar starting (or we can animate it if we had access
-                  // to the view object's progress property)
+        // Reuses the encode started when the screenshot landed
+        if (preparedImage == null)
+            preparedImage = geminiHelper.prepareImage(currentScreenshot);
+        return preparedImage;
+    }
+
+    private void analyse(TeamRoster roster, Bitmap screenshot, GeminiHelper.PreparedImage prepared) {
+        LatencyTracer.mark(LatencyTracer.Stage.SLOTS);
+        if (roster.isComplete()) {
+            LatencyTracer.increment("RECOGNIZED.SLOTS");
+            geminiHelper.startNewSession(roster.toPrompt(), roster.hash(), new ReplyRenderer(true));
+            return;
+        }
+        heroTextRecognizer.recognize(screenshot, result -> {
+            LatencyTracer.mark(LatencyTracer.Stage.OCR);
+            if (result.confident) {
+                LatencyTracer.increment("RECOGNIZED.OCR");
+                geminiHelper.startNewSession(result.toPrompt(), result.hash(), new ReplyRenderer(true));
+            } else {
+                LatencyTracer.increment("RECOGNIZED.NONE");
+                geminiHelper.startNewSession(prepared, new ReplyRenderer(true));
+            }
+        });
     }
 
     @Override
@@ -174,41 +212,114 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
         // Clear previous options when new request is sent
         overlayManager.updateQuickActions(new java.util.ArrayList<>());
 
-        geminiHelper.sendMessage(message, new GeminiHelper.GeminiCallback() {
-            @Override
-            public void onSuccess(String response) {
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    // Parse options
-                    java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\[OPTIONS:(.*?)\\]");
-                    java.util.regex.Matcher matcher = pattern.matcher(response);
-
-                    String cleanResponse = response;
-                    java.util.List<String> options = new java.util.ArrayList<>();
-
-                    if (matcher.find()) {
-                        String optionsStr = matcher.group(1);
-                        if (optionsStr != null) {
-                            String[] rawOptions = optionsStr.split("\\|");
-                            for (String opt : rawOptions) {
-                                options.add(opt.trim());
-                            }
-                        }
-                        // Remove the tag from display logic
-                        cleanResponse = matcher.replaceAll("").trim();
-                    }
+        geminiHelper.sendMessage(message, new ReplyRenderer(false));
+    }
+
+    // Renders one Gemini reply into the chat, streaming it in as chunks arrive.
+    // GeminiHelper calls back on background threads; everything here hops to the main thread.
+    private class ReplyRenderer implements GeminiHelper.GeminiCallback {
+        private final boolean newSession;
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private boolean streamStarted = false; // main thread only
+        private boolean optionsShown = false; // main thread only
+        private final StringBuilder streamedText = new StringBuilder(); // main thread only, tags removed
+        private final OptionsTagExtractor optionsExtractor = new OptionsTagExtractor(options -> {
+            optionsShown = true;
+            overlayManager.updateQuickActions(options); // As soon as the tag closes
+        });
+
+        ReplyRenderer(boolean newSession) {
+            this.newSession = newSession;
+        }
+
+        @Override
+        public void onFirstChunk() {
+            if (newSession) {
+                mainHandler.post(() -> overlayManager.onUploadComplete()); // Switch to "Receiving" phase
+            }
+        }
+
+        @Override
+        public void onPartialResponse(String chunk) {
+            mainHandler.post(() -> {
+                if (!streamStarted) {
+                    streamStarted = true;
+                    if (newSession)
+                        overlayManager.switchContent(R.layout.view_overlay_data);
+                    overlayManager.beginStreamingMessage("Gemini: ");
+                }
+                int visibleFrom = streamedText.length();
+                optionsExtractor.feed(chunk, streamedText);
+                if (streamedText.length() > visibleFrom)
+                    overlayManager.appendStreamingChunk(streamedText.substring(visibleFrom));
+            });
+        }
 
+        @Override
+        public void onSuccess(String response) {
+            mainHandler.post(() -> {
+                onReplyComplete();
+
+                // Streamed replies went through the extractor chunk by chunk already
+                if (!streamStarted && response != null)
+                    optionsExtractor.feed(response, streamedText);
+                optionsExtractor.finish(streamedText);
+                String cleanResponse = streamedText.toString().trim();
+                LatencyTracer.mark(LatencyTracer.Stage.RESPONSE_PARSED);
+
+                if (streamStarted)
+                    overlayManager.finishStreamingMessage("Gemini: " + cleanResponse);
+                else
                     overlayManager.appendChatMessage("Gemini: " + cleanResponse);
-                    overlayManager.updateQuickActions(options);
-                });
+                if (!optionsShown)
+                    overlayManager.updateQuickActions(new java.util.ArrayList<>());
+                onReplyRendered();
+            });
+        }
+
+        @Override
+        public void onStructuredResult(AnalysisResult result) {
+            // Already parsed off the main thread; just bind it
+            mainHandler.post(() -> {
+                onReplyComplete();
+                overlayManager.appendChatMessage("Gemini: " + result.displayText);
+                overlayManager.updateQuickActions(result.options);
+                onReplyRendered();
+            });
+        }
+
+        private void onReplyComplete() {
+            if (newSession) {
+                finishAnalysis();
+                overlayManager.hideLoading();
+                if (!streamStarted)
+                    overlayManager.switchContent(R.layout.view_overlay_data);
             }
+        }
 
-            @Override
-            public void onError(Throwable t) {
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    overlayManager.appendChatMessage("System: Error - " + t.getMessage());
-                });
+        private void onReplyRendered() {
+            if (newSession) {
+                LatencyTracer.mark(LatencyTracer.Stage.SPANS_RENDERED);
+                LatencyTracer.end(LatencyTracer.Pipeline.ANALYZE);
+                LatencyTracer.dumpToFile(MlbbOverlayService.this);
             }
-        });
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            mainHandler.post(() -> {
+                if (streamStarted)
+                    overlayManager.finishStreamingMessage("Gemini: " + streamedText); // Keep what arrived
+                if (newSession) {
+                    finishAnalysis();
+                    overlayManager.hideLoading();
+                    Toast.makeText(MlbbOverlayService.this, "Gemini Error: " + t.getMessage(), Toast.LENGTH_LONG)
+                            .show();
+                } else {
+                    overlayManager.appendChatMessage("System: Error - " + t.getMessage());
+                }
+            });
+        }
     }
 
     @Override
@@ -224,10 +335,101 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
     @Override
     public void onCloseRequest() {
         overlayManager.hideExpandedView();
+        syncAutoCapture(); // Settings may have changed while the overlay was open
+        ModelClientRegistry.prewarm(getApplicationContext()); // The reply format picks another client
     }
 
     // --- Helpers ---
 
+    private void syncAutoCapture() {
+        boolean enabled = SettingsManager.isAutoCaptureEnabled(this);
+        float fps = SettingsManager.getAutoCaptureFps(this);
+        int threshold = SettingsManager.getSceneChangeThreshold(this);
+        boolean changed = fps != autoCaptureFps || threshold != sceneChangeThreshold;
+        if (enabled && captureManager.isProjectionActive() && (!captureManager.isContinuousActive() || changed)) {
+            // Restarting with new values replaces the rate and the detector in place
+            autoCaptureFps = fps;
+            sceneChangeThreshold = threshold;
+            captureManager.startContinuousCapture(fps, threshold, this::onSceneChanged);
+        } else if (!enabled && captureManager.isContinuousActive()) {
+            captureManager.stopContinuousCapture();
+        }
+    }
+
+    private void onSceneChanged(Bitmap bitmap, long hash) {
+        // Dropped scenes are not accepted, so the detector offers them again once we are free
+        if (isAutoSendBlocked() || autoCheckRunning
+                || SystemClock.elapsedRealtime() - lastAutoCheckMs < AUTO_RECHECK_MS) {
+            captureManager.releaseBitmap(bitmap);
+            return;
+        }
+
+        // Only the draft screen is worth a request; the slots tell it apart from everything else
+        autoCheckRunning = true;
+        rosterRecognizer.recognize(bitmap, roster -> mainHandler.post(() -> {
+            autoCheckRunning = false;
+            lastAutoCheckMs = SystemClock.elapsedRealtime();
+            if (!roster.isComplete() || isAutoSendBlocked()) {
+                // No portrait at all means this is not a draft, so stop looking at the scene. A
+                // partial roster is likely a draft still loading and gets checked again.
+                if (roster.confidentCount() == 0)
+                    captureManager.acceptScene(hash);
+                captureManager.releaseBitmap(bitmap);
+                return;
+            }
+
+            Log.d(TAG, "Draft screen detected, analysing automatically");
+            captureManager.acceptScene(hash);
+            lastAutoSendMs = lastAutoCheckMs;
+            replaceScreenshot(bitmap);
+            GeminiHelper.PreparedImage prepared = beginAnalysis();
+            if (SettingsManager.isOnDeviceRecognitionEnabled(this))
+                analyse(roster, bitmap, prepared);
+            else
+                geminiHelper.startNewSession(prepared, new ReplyRenderer(true));
+        }));
+    }
+
+    private boolean isAutoSendBlocked() {
+        // The expanded overlay covers the game, so anything seen while it is open is our own UI
+        return overlayManager.isExpanded() || analysisBitmap != null
+                || SystemClock.elapsedRealtime() - lastAutoSendMs < AUTO_SEND_MIN_INTERVAL_MS;
+    }
+
+    private void replaceScreenshot(Bitmap bitmap) {
+        Bitmap previous = currentScreenshot;
+        if (previous == bitmap) {
+            // Shared result of a coalesced capture, already shown: drop this call's reference
+            captureManager.releaseBitmap(bitmap);
+            return;
+        }
+        currentScreenshot = bitmap;
+        overlayManager.updateResultImage(bitmap);
+
+        // Encode now so Send finds the bytes ready; the old encode is no longer wanted
+        if (preparedImage != null && previous != analysisBitmap)
+            preparedImage.cancel();
+        preparedImage = bitmap != null ? geminiHelper.prepareImage(bitmap) : null;
+
+        // The old capture is no longer displayed; recycle it unless Gemini is still reading it
+        if (previous != null && previous != analysisBitmap) {
+            releaseAfterEncodes(previous);
+        }
+    }
+
+    private void finishAnalysis() {
+        Bitmap analysed = analysisBitmap;
+        analysisBitmap = null;
+        if (analysed != null && analysed != currentScreenshot) {
+            releaseAfterEncodes(analysed);
+        }
+    }
+
+    // A cancelled encode may still be reading the bitmap, so wait for it before recycling
+    private void releaseAfterEncodes(Bitmap bitmap) {
+        geminiHelper.afterPendingEncodes(() -> captureManager.releaseBitmap(bitmap));
+    }
+
     private void extractDataFromScreenshot() {
         Toast.makeText(this, "Extraction logic reverted.", Toast.LENGTH_SHORT).show();
     }
@@ -247,7 +449,10 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
         if (currentScreenshot == null)
             return;
 
+        Bitmap screenshot = currentScreenshot;
         new Thread(() -> {
+            // Hardware-backed previews must be read back before they can be encoded
+            Bitmap pixels = ScreenCaptureManager.toSoftwareBitmap(screenshot);
             java.io.File directory = getExternalFilesDir(android.os.Environment.DIRECTORY_PICTURES);
             if (directory != null) {
                 if (!directory.exists())
@@ -255,7 +460,7 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
                 java.io.File file = new java.io.File(directory, "capture_result.png");
 
                 try (java.io.FileOutputStream out = new java.io.FileOutputStream(file)) {
-                    currentScreenshot.compress(Bitmap.CompressFormat.PNG, 100, out);
+                    pixels.compress(Bitmap.CompressFormat.PNG, 100, out);
                     new Handler(Looper.getMainLooper()).post(
                             () -> Toast.makeText(this, "Saved: " + file.getAbsolutePath(), Toast.LENGTH_LONG).show());
                     Log.d(TAG, "Screenshot saved to: " + file.getAbsolutePath());
@@ -265,6 +470,9 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
                             .post(() -> Toast.makeText(this, "Failed to save screenshot", Toast.LENGTH_SHORT).show());
                 }
             }
+            if (pixels != screenshot) {
+                pixels.recycle();
+            }
         }).start();
     }
 
@@ -299,10 +507,15 @@ public class MlbbOverlayService extends Service implements OverlayActionListener
     @Override
     public void onDestroy() {
         super.onDestroy();
+        LatencyTracer.dumpToFile(this);
         isProjectionActive = false;
+        if (pendingCapture != null)
+            pendingCapture.cancel();
         if (overlayManager != null)
             overlayManager.destroy();
         if (captureManager != null)
             captureManager.stopProjection();
+        if (heroTextRecognizer != null)
+            heroTextRecognizer.close();
     }
 }
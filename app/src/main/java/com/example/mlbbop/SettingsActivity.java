@@ -2,6 +2,7 @@ package com.example.mlbbop;
 
 import android.os.Bundle;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.TextView;
@@ -13,8 +14,8 @@ import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowInsetsControllerCompat;
 
+import com.example.mlbbop.managers.ModelClientRegistry;
 import com.example.mlbbop.managers.SettingsManager;
-import com.google.ai.client.generativeai.GenerativeModel;
 import com.google.ai.client.generativeai.java.GenerativeModelFutures;
 import com.google.ai.client.generativeai.type.Content;
 import com.google.ai.client.generativeai.type.GenerateContentResponse;
@@ -23,17 +24,16 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-
 public class SettingsActivity extends AppCompatActivity {
 
-    private TextInputEditText etApiKey1, etApiKey2, etApiKey3, etModelName;
+    private TextInputEditText etApiKey1, etApiKey2, etApiKey3, etModelName, etCaptureScale;
+    private TextInputEditText etAutoCaptureFps, etSceneThreshold, etHedgePercentile, etHedgeMaxRate;
     private RadioGroup rgApiKeys;
     private RadioButton rbKey1, rbKey2, rbKey3;
+    private RadioButton rbResNative, rbRes1080, rbRes720, rbResCustom;
+    private CheckBox cbAutoCapture, cbStructuredReplies, cbHedgedRequests, cbOnDeviceRecognition;
     private TextView tvStatus;
     private Button btnSave, btnHealthCheck;
-    private Executor executor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -54,6 +54,19 @@ public class SettingsActivity extends AppCompatActivity {
         rbKey1 = findViewById(R.id.rb_key_1);
         rbKey2 = findViewById(R.id.rb_key_2);
         rbKey3 = findViewById(R.id.rb_key_3);
+        rbResNative = findViewById(R.id.rb_res_native);
+        rbRes1080 = findViewById(R.id.rb_res_1080);
+        rbRes720 = findViewById(R.id.rb_res_720);
+        rbResCustom = findViewById(R.id.rb_res_custom);
+        etCaptureScale = findViewById(R.id.et_capture_scale);
+        cbAutoCapture = findViewById(R.id.cb_auto_capture);
+        etAutoCaptureFps = findViewById(R.id.et_auto_capture_fps);
+        etSceneThreshold = findViewById(R.id.et_scene_threshold);
+        cbStructuredReplies = findViewById(R.id.cb_structured_replies);
+        cbHedgedRequests = findViewById(R.id.cb_hedged_requests);
+        etHedgePercentile = findViewById(R.id.et_hedge_percentile);
+        etHedgeMaxRate = findViewById(R.id.et_hedge_max_rate);
+        cbOnDeviceRecognition = findViewById(R.id.cb_on_device_recognition);
         tvStatus = findViewById(R.id.tv_settings_status);
         btnSave = findViewById(R.id.btn_save_settings);
         btnHealthCheck = findViewById(R.id.btn_check_health);
@@ -77,6 +90,25 @@ public class SettingsActivity extends AppCompatActivity {
             rbKey3.setChecked(true);
         else
             rbKey1.setChecked(true);
+
+        String resolution = SettingsManager.getCaptureResolution(this);
+        if (SettingsManager.RESOLUTION_NATIVE.equals(resolution))
+            rbResNative.setChecked(true);
+        else if (SettingsManager.RESOLUTION_720P.equals(resolution))
+            rbRes720.setChecked(true);
+        else if (SettingsManager.RESOLUTION_CUSTOM.equals(resolution))
+            rbResCustom.setChecked(true);
+        else
+            rbRes1080.setChecked(true);
+        etCaptureScale.setText(String.valueOf(SettingsManager.getCaptureCustomScale(this)));
+        cbAutoCapture.setChecked(SettingsManager.isAutoCaptureEnabled(this));
+        etAutoCaptureFps.setText(String.valueOf(SettingsManager.getAutoCaptureFps(this)));
+        etSceneThreshold.setText(String.valueOf(SettingsManager.getSceneChangeThreshold(this)));
+        cbStructuredReplies.setChecked(SettingsManager.isStructuredResponseEnabled(this));
+        cbHedgedRequests.setChecked(SettingsManager.isHedgingEnabled(this));
+        etHedgePercentile.setText(String.valueOf(SettingsManager.getHedgePercentile(this)));
+        etHedgeMaxRate.setText(String.valueOf(SettingsManager.getHedgeMaxRate(this)));
+        cbOnDeviceRecognition.setChecked(SettingsManager.isOnDeviceRecognitionEnabled(this));
     }
 
     private void saveSettings() {
@@ -100,6 +132,50 @@ public class SettingsActivity extends AppCompatActivity {
             activeIndex = 3;
         SettingsManager.saveActiveKeyIndex(this, activeIndex);
 
+        String resolution = SettingsManager.RESOLUTION_1080P;
+        if (rbResNative.isChecked())
+            resolution = SettingsManager.RESOLUTION_NATIVE;
+        else if (rbRes720.isChecked())
+            resolution = SettingsManager.RESOLUTION_720P;
+        else if (rbResCustom.isChecked())
+            resolution = SettingsManager.RESOLUTION_CUSTOM;
+        SettingsManager.saveCaptureResolution(this, resolution);
+
+        try {
+            float scale = Float.parseFloat(etCaptureScale.getText().toString().trim());
+            SettingsManager.saveCaptureCustomScale(this, Math.max(0.1f, Math.min(1f, scale)));
+        } catch (NumberFormatException ignored) {
+            // Keep the previous scale
+        }
+        SettingsManager.saveAutoCaptureEnabled(this, cbAutoCapture.isChecked());
+        try {
+            float fps = Float.parseFloat(etAutoCaptureFps.getText().toString().trim());
+            SettingsManager.saveAutoCaptureFps(this, Math.max(0.1f, Math.min(10f, fps)));
+        } catch (NumberFormatException ignored) {
+            // Keep the previous rate
+        }
+        try {
+            int threshold = Integer.parseInt(etSceneThreshold.getText().toString().trim());
+            SettingsManager.saveSceneChangeThreshold(this, Math.max(1, Math.min(32, threshold)));
+        } catch (NumberFormatException ignored) {
+            // Keep the previous threshold
+        }
+        SettingsManager.saveStructuredResponseEnabled(this, cbStructuredReplies.isChecked());
+        SettingsManager.saveHedgingEnabled(this, cbHedgedRequests.isChecked());
+        try {
+            float percentile = Float.parseFloat(etHedgePercentile.getText().toString().trim());
+            SettingsManager.saveHedgePercentile(this, Math.max(50f, Math.min(99f, percentile)));
+        } catch (NumberFormatException ignored) {
+            // Keep the previous percentile
+        }
+        try {
+            float maxRate = Float.parseFloat(etHedgeMaxRate.getText().toString().trim());
+            SettingsManager.saveHedgeMaxRate(this, Math.max(0f, Math.min(1f, maxRate)));
+        } catch (NumberFormatException ignored) {
+            // Keep the previous rate
+        }
+        SettingsManager.saveOnDeviceRecognitionEnabled(this, cbOnDeviceRecognition.isChecked());
+
         tvStatus.setText("Settings saved successfully!");
         Toast.makeText(this, "Settings Saved!", Toast.LENGTH_SHORT).show();
     }
@@ -125,8 +201,7 @@ public class SettingsActivity extends AppCompatActivity {
             return;
         }
 
-        GenerativeModel gm = new GenerativeModel(modelName, activeKey);
-        GenerativeModelFutures model = GenerativeModelFutures.from(gm);
+        GenerativeModelFutures model = ModelClientRegistry.get(activeKey, modelName);
 
         Content content = new Content.Builder()
                 .addText("Ping")
@@ -150,7 +225,7 @@ public class SettingsActivity extends AppCompatActivity {
                     Toast.makeText(SettingsActivity.this, "API Error", Toast.LENGTH_LONG).show();
                 });
             }
-        }, executor);
+        }, ModelClientRegistry.callbackExecutor());
     }
 
     private void hideSystemUI() {
@@ -0,0 +1,115 @@
+package com.example.mlbbop.managers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Typed form of a structured (JSON mode) Gemini reply. Immutable, so it can be built on a
+// background thread and handed to the UI as is.
+public final class AnalysisResult {
+    // JSON field names, shared with the response schema in GeminiHelper
+    static final String FIELD_ALLIES = "allies";
+    static final String FIELD_ENEMIES = "enemies";
+    static final String FIELD_SELECTED_HERO = "selected_hero";
+    static final String FIELD_RECOMMENDATIONS = "recommendations";
+    static final String FIELD_OPTIONS = "options";
+    static final String FIELD_SUMMARY = "summary";
+
+    public final List<String> allies;
+    public final List<String> enemies;
+    public final String selectedHero; // Empty until the user has picked one
+    public final List<String> recommendations;
+    public final List<String> options;
+    public final String summary;
+    public final boolean offline; // A cached reply, shown because the API could not answer
+    public final String displayText; // Pre-rendered chat text
+
+    // Heads the text of a reply replayed from the cache
+    public static final String OFFLINE_LABEL = "(Offline, cached reply)";
+
+    public AnalysisResult(List<String> allies, List<String> enemies, String selectedHero,
+            List<String> recommendations, List<String> options, String summary) {
+        this(allies, enemies, selectedHero, recommendations, options, summary, false);
+    }
+
+    private AnalysisResult(List<String> allies, List<String> enemies, String selectedHero,
+            List<String> recommendations, List<String> options, String summary, boolean offline) {
+        this.allies = Collections.unmodifiableList(new ArrayList<>(allies));
+        this.enemies = Collections.unmodifiableList(new ArrayList<>(enemies));
+        this.selectedHero = selectedHero != null ? selectedHero : "";
+        this.recommendations = Collections.unmodifiableList(new ArrayList<>(recommendations));
+        this.options = Collections.unmodifiableList(new ArrayList<>(options));
+        this.summary = summary != null ? summary : "";
+        this.offline = offline;
+        this.displayText = buildDisplayText();
+    }
+
+    // The same reply, marked as coming from the cache
+    public AnalysisResult asOffline() {
+        return new AnalysisResult(allies, enemies, selectedHero, recommendations, options, summary, true);
+    }
+
+    public static AnalysisResult fromJson(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        return new AnalysisResult(
+                readList(root, FIELD_ALLIES),
+                readList(root, FIELD_ENEMIES),
+                root.optString(FIELD_SELECTED_HERO, "").trim(),
+                readList(root, FIELD_RECOMMENDATIONS),
+                readList(root, FIELD_OPTIONS),
+                root.optString(FIELD_SUMMARY, "").trim());
+    }
+
+    public JSONObject toJson() throws JSONException {
+        JSONObject root = new JSONObject();
+        root.put(FIELD_ALLIES, new JSONArray(allies));
+        root.put(FIELD_ENEMIES, new JSONArray(enemies));
+        root.put(FIELD_SELECTED_HERO, selectedHero);
+        root.put(FIELD_RECOMMENDATIONS, new JSONArray(recommendations));
+        root.put(FIELD_OPTIONS, new JSONArray(options));
+        root.put(FIELD_SUMMARY, summary);
+        return root;
+    }
+
+    private static List<String> readList(JSONObject root, String field) {
+        List<String> values = new ArrayList<>();
+        JSONArray array = root.optJSONArray(field);
+        if (array == null)
+            return values;
+        for (int i = 0; i < array.length(); i++) {
+            String value = array.optString(i, "").trim();
+            if (!value.isEmpty())
+                values.add(value);
+        }
+        return values;
+    }
+
+    private String buildDisplayText() {
+        StringBuilder text = new StringBuilder();
+        if (offline)
+            text.append(OFFLINE_LABEL).append('\n');
+        if (!allies.isEmpty())
+            text.append("Allies: ").append(String.join(", ", allies)).append('\n');
+        if (!enemies.isEmpty())
+            text.append("Enemies: ").append(String.join(", ", enemies)).append('\n');
+        if (!selectedHero.isEmpty())
+            text.append("Your hero: ").append(selectedHero).append('\n');
+        if (!summary.isEmpty()) {
+            if (text.length() > 0)
+                text.append('\n');
+            text.append(summary).append('\n');
+        }
+        if (!recommendations.isEmpty()) {
+            if (text.length() > 0)
+                text.append('\n');
+            for (String recommendation : recommendations) {
+                text.append("- ").append(recommendation).append('\n');
+            }
+        }
+        return text.toString().trim();
+    }
+}
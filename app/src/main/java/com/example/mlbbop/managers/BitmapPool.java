@@ -0,0 +1,59 @@
+package com.example.mlbbop.managers;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BitmapPool {
+    private static final int MAX_PER_SIZE = 2;
+
+    // Free ARGB_8888 bitmaps keyed by (width << 32 | height)
+    private final Map<Long, ArrayDeque<Bitmap>> freeBitmaps = new HashMap<>();
+
+    public synchronized Bitmap acquire(int width, int height) {
+        ArrayDeque<Bitmap> bucket = freeBitmaps.get(key(width, height));
+        if (bucket != null) {
+            Bitmap bitmap;
+            while ((bitmap = bucket.poll()) != null) {
+                if (!bitmap.isRecycled())
+                    return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getConfig() != Bitmap.Config.ARGB_8888)
+            return;
+
+        long key = key(bitmap.getWidth(), bitmap.getHeight());
+        ArrayDeque<Bitmap> bucket = freeBitmaps.get(key);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>(MAX_PER_SIZE);
+            freeBitmaps.put(key, bucket);
+        }
+        if (bucket.contains(bitmap))
+            return; // Already pooled
+        if (bucket.size() >= MAX_PER_SIZE) {
+            bitmap.recycle();
+            return;
+        }
+        bucket.push(bitmap);
+    }
+
+    public synchronized void clear() {
+        for (ArrayDeque<Bitmap> bucket : freeBitmaps.values()) {
+            for (Bitmap bitmap : bucket) {
+                bitmap.recycle();
+            }
+        }
+        freeBitmaps.clear();
+    }
+
+    private static long key(int width, int height) {
+        return ((long) width << 32) | (height & 0xffffffffL);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.mlbbop.managers;
+
+// Fails fast while the API looks down.
+// CLOSED: calls go through and outcomes are recorded over a sliding window of the last
+// windowSize calls. Once at least minCalls are recorded and the failure rate reaches
+// failureRate, the breaker OPENs and rejects calls for openMs. After that one trial call is let
+// through (HALF_OPEN): success closes the breaker, failure opens it again.
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public interface Clock {
+        long nowMs();
+    }
+
+    public static class OpenException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(long retryInMs) {
+            super("Gemini looks unavailable, retrying in " + Math.max(1, (retryInMs + 999) / 1000) + "s");
+        }
+    }
+
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRate;
+    private final long openMs;
+    private final Clock clock;
+
+    private final boolean[] outcomes; // true = failure
+    private int recorded = 0;
+    private int failures = 0;
+    private int next = 0;
+
+    private State state = State.CLOSED;
+    private long openedAtMs;
+    private boolean trialInFlight = false;
+
+    public CircuitBreaker(int windowSize, int minCalls, double failureRate, long openMs) {
+        this(windowSize, minCalls, failureRate, openMs, () -> System.nanoTime() / 1_000_000);
+    }
+
+    public CircuitBreaker(int windowSize, int minCalls, double failureRate, long openMs, Clock clock) {
+        this.windowSize = windowSize;
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRate = failureRate;
+        this.openMs = openMs;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.nowMs() - openedAtMs >= openMs)
+            return State.HALF_OPEN;
+        return state;
+    }
+
+    // True if the call may proceed; report its outcome with onSuccess or onFailure
+    public synchronized boolean allowRequest() {
+        switch (getState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                state = State.HALF_OPEN;
+                if (trialInFlight)
+                    return false;
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // How long until an OPEN breaker lets a trial call through
+    public synchronized long retryInMs() {
+        return state == State.OPEN ? Math.max(0, openMs - (clock.nowMs() - openedAtMs)) : 0;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minCalls && failures >= failureRate * recorded)
+            open();
+    }
+
+    // For outcomes that say nothing about the API's health (e.g. one key's rate limit)
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[next])
+                failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure)
+            failures++;
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMs = clock.nowMs();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        recorded = 0;
+        failures = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.mlbbop.managers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Size-bounded LRU cache of replies, persisted as an append-only log.
+// Each record holds (image hash, store time, variant, question, reply); records older than maxAgeMs
+// are not served unless asked for, since the meta moves on between game patches. They still count
+// towards the size bound and go as least recently used. The in-memory index is rebuilt by
+// scanning the log in load(), or on first use if load() was not called, and the log is rewritten with only the live records once it
+// grows to twice their size. A torn record at the tail (crash mid-write) is truncated away.
+// Do all calls off the main thread; a hit is one seek and one read.
+public class DiskResponseCache {
+    private static final int MAGIC = 0x4d4c4232; // "MLB2", older logs are dropped on open
+    private static final long MIN_COMPACT_BYTES = 64 * 1024;
+
+    private static final class Key {
+        final long hash;
+        final String variant;
+        final String question;
+
+        Key(long hash, String variant, String question) {
+            this.hash = hash;
+            this.variant = variant;
+            this.question = question;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return hash == other.hash && variant.equals(other.variant) && question.equals(other.question);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * Long.hashCode(hash) + variant.hashCode()) * 31 + question.hashCode();
+        }
+    }
+
+    // Where a record's reply bytes live in the log
+    private static final class Location {
+        final long valueOffset;
+        final int valueLength;
+        final int recordLength;
+        final long storedAtMs; // Wall clock, so ages carry over restarts
+
+        Location(long valueOffset, int valueLength, int recordLength, long storedAtMs) {
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.recordLength = recordLength;
+            this.storedAtMs = storedAtMs;
+        }
+    }
+
+    private final File file;
+    private final long maxBytes;
+    private final int maxDistance;
+    private final long maxAgeMs;
+    private final LinkedHashMap<Key, Location> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(4096);
+    private RandomAccessFile log;
+    private long liveBytes = 0;
+
+    // maxDistance: how far (in dHash bits) a screenshot may be from a cached one and still hit
+    public DiskResponseCache(File file, long maxBytes, int maxDistance, long maxAgeMs) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxDistance = maxDistance;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    // Scans the log into the index now, so the first get does not pay for it. Call at startup.
+    public synchronized void load() throws IOException {
+        open();
+    }
+
+    public synchronized String get(long hash, String variant, String question) throws IOException {
+        return get(hash, variant, question, maxDistance, maxAgeMs);
+    }
+
+    public synchronized String get(long hash, String variant, String question, int maxDistance, long maxAgeMs)
+            throws IOException {
+        open();
+        long now = System.currentTimeMillis();
+        Key best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Map.Entry<Key, Location> e : index.entrySet()) {
+            if (now - e.getValue().storedAtMs > maxAgeMs)
+                continue;
+            Key key = e.getKey();
+            if (!key.variant.equals(variant) || !key.question.equals(question))
+                continue;
+            int distance = PerceptualHash.distance(key.hash, hash);
+            if (distance <= maxDistance && distance < bestDistance) {
+                best = key;
+                bestDistance = distance;
+            }
+        }
+        if (best == null)
+            return null;
+
+        Location location = index.get(best); // Also marks it most recent
+        byte[] value = new byte[location.valueLength];
+        log.seek(location.valueOffset);
+        log.readFully(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    public synchronized void put(long hash, String variant, String question, String value) throws IOException {
+        open();
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        Key key = new Key(hash, variant, question);
+        long storedAtMs = System.currentTimeMillis();
+
+        int valueStart = writeRecord(key, storedAtMs, valueBytes);
+        byte[] record = recordBuffer.toByteArray();
+
+        long offset = log.length();
+        log.seek(offset);
+        log.write(record);
+        track(key, new Location(offset + valueStart, valueBytes.length, record.length, storedAtMs));
+
+        if (log.length() > MIN_COMPACT_BYTES && log.length() > 2 * liveBytes)
+            compact();
+    }
+
+    public synchronized void close() {
+        if (log == null)
+            return;
+        try {
+            log.close();
+        } catch (IOException ignored) {
+        }
+        log = null;
+        index.clear();
+        liveBytes = 0;
+    }
+
+    // Record: magic, hash, store time, variant, question, value length, value, CRC32 of everything
+    // before it. Built in recordBuffer; returns the value's offset within the record.
+    private int writeRecord(Key key, long storedAtMs, byte[] value) throws IOException {
+        recordBuffer.reset();
+        CheckedOutputStream checked = new CheckedOutputStream(recordBuffer, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        int valueStart = writeHeader(out, key, storedAtMs, value.length);
+        out.write(value);
+        out.flush();
+        new DataOutputStream(recordBuffer).writeLong(checked.getChecksum().getValue());
+        return valueStart;
+    }
+
+    private static int writeHeader(DataOutputStream out, Key key, long storedAtMs, int valueLength)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(key.hash);
+        out.writeLong(storedAtMs);
+        out.writeUTF(key.variant);
+        out.writeUTF(key.question);
+        out.writeInt(valueLength);
+        return out.size();
+    }
+
+    private void track(Key key, Location location) {
+        Location previous = index.put(key, location);
+        if (previous != null)
+            liveBytes -= previous.recordLength;
+        liveBytes += location.recordLength;
+
+        // Evict least recently used records until the live set fits
+        Iterator<Map.Entry<Key, Location>> it = index.entrySet().iterator();
+        while (liveBytes > maxBytes && index.size() > 1 && it.hasNext()) {
+            Map.Entry<Key, Location> eldest = it.next();
+            liveBytes -= eldest.getValue().recordLength;
+            it.remove();
+        }
+    }
+
+    private void open() throws IOException {
+        if (log != null)
+            return;
+        log = new RandomAccessFile(file, "rw");
+        rebuildIndex();
+    }
+
+    private void rebuildIndex() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        long length = log.length();
+        long offset = 0;
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            while (offset < length) {
+                checked.getChecksum().reset();
+                if (in.readInt() != MAGIC)
+                    break;
+                long hash = in.readLong();
+                long storedAtMs = in.readLong();
+                String variant = in.readUTF();
+                String question = in.readUTF();
+                int valueLength = in.readInt();
+                if (valueLength < 0 || valueLength > length - offset)
+                    break;
+                Key key = new Key(hash, variant, question);
+                int valueStart = headerLength(key);
+                if (in.skipBytes(valueLength) != valueLength)
+                    break;
+                long crc = checked.getChecksum().getValue();
+                if (in.readLong() != crc)
+                    break;
+                int recordLength = valueStart + valueLength + 8;
+                track(key, new Location(offset + valueStart, valueLength, recordLength, storedAtMs));
+                offset += recordLength;
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            // Torn tail; everything before offset is intact
+        }
+        if (offset < length)
+            log.setLength(offset);
+    }
+
+    private int headerLength(Key key) throws IOException {
+        recordBuffer.reset();
+        return writeHeader(new DataOutputStream(recordBuffer), key, 0, 0);
+    }
+
+    // Rewrites the log with the live records in LRU order, then swaps it in
+    private void compact() throws IOException {
+        List<Map.Entry<Key, Location>> live = new ArrayList<>(index.entrySet());
+        List<byte[]> values = new ArrayList<>(live.size());
+        for (Map.Entry<Key, Location> e : live) {
+            Location location = e.getValue();
+            byte[] value = new byte[location.valueLength];
+            log.seek(location.valueOffset);
+            log.readFully(value);
+            values.add(value);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            for (int i = 0; i < live.size(); i++) {
+                writeRecord(live.get(i).getKey(), live.get(i).getValue().storedAtMs, values.get(i));
+                recordBuffer.writeTo(out);
+            }
+        }
+        log.close();
+        log = null;
+        if (!tmp.renameTo(file))
+            throw new IOException("Failed to replace " + file);
+        open();
+    }
+}
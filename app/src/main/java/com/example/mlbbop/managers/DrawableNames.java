@@ -0,0 +1,44 @@
+package com.example.mlbbop.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The names a bundled drawable is found by in a reply. "blade_of_despair" (and item icons named
+// like "blade_of_despair_png") become "blade of despair", plus spellings a resource name cannot
+// hold, like "chang'e". Plain Java so the unit tests derive exactly the names the app does.
+public final class DrawableNames {
+    private static final int MIN_KEY_LENGTH = 3; // Shorter names are mostly false positives
+
+    private DrawableNames() {
+    }
+
+    // Lower case keys for the drawable, the main one first; empty if it is a UI asset or too short
+    public static List<String> keysFor(String drawable) {
+        if (drawable.startsWith("ic_") || drawable.startsWith("abc_") || drawable.startsWith("notification_"))
+            return Collections.emptyList();
+        String name = drawable.endsWith("_png") ? drawable.substring(0, drawable.length() - 4) : drawable;
+        String key = name.replace("_", " ").toLowerCase();
+        if (key.length() < MIN_KEY_LENGTH)
+            return Collections.emptyList();
+
+        List<String> keys = new ArrayList<>(2);
+        keys.add(key);
+        if (key.contains(" s "))
+            keys.add(key.replace(" s ", "'s "));
+        switch (key) {
+            case "chang e":
+                keys.add("chang'e");
+                break;
+            case "x borg":
+                keys.add("x.borg");
+                break;
+            case "julian dd":
+                // The portrait file carries a suffix, but the game, the roster prompt and the
+                // replies all say "Julian"
+                keys.add("julian");
+                break;
+        }
+        return keys;
+    }
+}
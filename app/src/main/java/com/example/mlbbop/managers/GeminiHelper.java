@@ -5,25 +5,82 @@ import android.util.Log;
 
 import com.example.mlbbop.BuildConfig;
 import com.example.mlbbop.MlbbOverlayService;
-import com.google.ai.client.generativeai.GenerativeModel;
 import com.google.ai.client.generativeai.java.ChatFutures;
 import com.google.ai.client.generativeai.java.GenerativeModelFutures;
 import com.google.ai.client.generativeai.type.Content;
 import com.google.ai.client.generativeai.type.GenerateContentResponse;
+import com.google.ai.client.generativeai.type.GenerationConfig;
+import com.google.ai.client.generativeai.type.QuotaExceededException;
+import com.google.ai.client.generativeai.type.RequestTimeoutException;
+import com.google.ai.client.generativeai.type.Schema;
+import com.google.ai.client.generativeai.type.ServerException;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import org.json.JSONException;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class GeminiHelper {
     private static final String TAG = "GeminiHelper";
     private static final String API_KEY = BuildConfig.GEMINI_API_KEY;
 
-    private GenerativeModelFutures model;
-    private ChatFutures chatSession;
-    private Executor executor = Executors.newSingleThreadExecutor();
+    private final android.content.Context appContext; // Settings read per session
+    private final String modelName;
+    private final List<String> apiKeys; // Indexed like keyScheduler's keys
+    // Latency samples are kept while hedging is off, so turning it on starts from real delays
+    private final HedgePolicy hedgePolicy;
+    private final RequestRunner<Turn> runner; // Retries, deadlines, hedges and the offline fallback
+    private final boolean imageOnce; // Follow-ups see a MatchState instead of the screenshot
+    private final int windowTurns;
+    // Deadlines, retry backoff and hedge delays of runner; callbacks hop back to executor
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private volatile Session session;
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final ImageEncoder imageEncoder; // Only used on encodeExecutor
+    private final ListeningExecutorService encodeExecutor = MoreExecutors
+            .listeningDecorator(Executors.newSingleThreadExecutor());
+
+    // Bump whenever an instruction below changes, so cached replies to the old prompt are not reused
+    private static final int PROMPT_VERSION = 1;
+    private static final int CACHE_MAX_ENTRIES = 8;
+    private static final long CACHE_TTL_MS = 10 * 60 * 1000;
+    // Of the 64 bits of PerceptualHash.cacheKey: recapture noise only; a different hero moves it by tens
+    private static final int CACHE_MAX_DISTANCE = 2;
+
+    private static final long HEDGE_DEFAULT_DELAY_MS = 4000; // Until enough latency samples exist
+    private static final int BREAKER_WINDOW = 10;
+    private static final int BREAKER_MIN_CALLS = 4;
+    // Network trouble, timeouts and server-side (5xx) errors are worth another try. The SDK
+    // reports 429 / RESOURCE_EXHAUSTED as QuotaExceededException.
+    private static final List<Class<? extends Throwable>> RETRYABLE = Arrays.asList(
+            RequestTimeoutException.class, IOException.class, ServerException.class);
+    private static final List<Class<? extends Throwable>> RATE_LIMITED = Collections.singletonList(
+            QuotaExceededException.class);
+    private static final String STATE_ACK = "Understood, I have the match state.";
+    private static final String DISK_CACHE_FILE = "response_cache.log";
+    private static final long DISK_CACHE_MAX_BYTES = 2 * 1024 * 1024;
+    private static final long DISK_CACHE_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000; // About a balance patch
+
+    // Shared across helper instances so reopening the overlay keeps the cache
+    private static final ResponseCache<String> responseCache = new ResponseCache<>(CACHE_MAX_ENTRIES,
+            CACHE_TTL_MS, CACHE_MAX_DISTANCE);
+    // Survives restarts. Set once under GeminiHelper.class; read and written on executor only
+    private static volatile DiskResponseCache diskCache;
 
     private static final String SYSTEM_INSTRUCTION = "Act as a High-Level MLBB Strategic Analyst.\n" +
             "\n" +
@@ -44,53 +101,204 @@ public class GeminiHelper {
             "3. Response Style: > * Keep analysis hard-hitting, concise, and data-driven.\n" +
             "    If I click an option, I will send you that exact text. Respond specifically to it.";
 
+    // Structured mode: the response schema carries the fields, so no [OPTIONS] tag is needed
+    private static final String STRUCTURED_INSTRUCTION = "Act as a High-Level MLBB Strategic Analyst.\n" +
+            "Every reply is a JSON object matching the response schema.\n" +
+            "On an image upload, list the 5 ally and 5 enemy hero names and offer the 10 names as options " +
+            "so I can pick my hero. Once I pick one, set selected_hero and offer next steps as options " +
+            "(e.g. Build Info | Tactics | Win Condition).\n" +
+            "Keep summary and recommendations hard-hitting, concise and data-driven. " +
+            "Leave lists empty when they do not apply.";
+
     public GeminiHelper(android.content.Context context) {
-        String key = SettingsManager.getActiveApiKey(context);
-        String safeKey = (key != null && !key.isEmpty()) ? key : API_KEY;
+        appContext = context.getApplicationContext();
+        modelName = SettingsManager.getModelName(context);
+        apiKeys = collectApiKeys(context);
+        hedgePolicy = new HedgePolicy(SettingsManager.getHedgePercentile(context),
+                SettingsManager.getHedgeMaxRate(context), HEDGE_DEFAULT_DELAY_MS);
+        imageOnce = SettingsManager.isImageOnceSessionEnabled(context);
+        windowTurns = SettingsManager.getSessionWindowTurns(context);
+        synchronized (GeminiHelper.class) {
+            if (diskCache == null)
+                diskCache = new DiskResponseCache(new File(context.getFilesDir(), DISK_CACHE_FILE),
+                        DISK_CACHE_MAX_BYTES, CACHE_MAX_DISTANCE, DISK_CACHE_MAX_AGE_MS);
+        }
+        // Index the log before the first request needs it; no-op once loaded
+        executor.execute(() -> {
+            try {
+                diskCache.load();
+            } catch (IOException e) {
+                Log.w(TAG, "Disk cache load failed", e);
+            }
+        });
+        runner = new RequestRunner<>(new ChatTransport(), executor,
+                (task, delayMs) -> timer.schedule(() -> executor.execute(task), delayMs, TimeUnit.MILLISECONDS),
+                () -> System.nanoTime() / 1_000_000,
+                new KeyScheduler(apiKeys.size()),
+                new CircuitBreaker(BREAKER_WINDOW, BREAKER_MIN_CALLS,
+                        SettingsManager.getBreakerFailureRate(context), SettingsManager.getBreakerOpenMs(context)),
+                hedgePolicy, diskCache, RETRYABLE, RATE_LIMITED,
+                SettingsManager.getRequestTimeoutMs(context), SettingsManager.getMaxRetries(context),
+                SettingsManager.getRetryBaseDelayMs(context));
+        imageEncoder = new ImageEncoder(SettingsManager.getUploadLongEdge(context),
+                SettingsManager.getUploadFormat(context),
+                SettingsManager.getUploadByteBudget(context));
+    }
 
-        if (safeKey == null || safeKey.isEmpty()) {
+    // Every configured key, the active one first. Falls back to the build-time key.
+    static List<String> collectApiKeys(android.content.Context context) {
+        List<String> keys = new ArrayList<>();
+        int active = SettingsManager.getActiveKeyIndex(context);
+        addKey(keys, SettingsManager.getApiKey(context, active));
+        for (int index = 1; index <= 3; index++) {
+            if (index != active)
+                addKey(keys, SettingsManager.getApiKey(context, index));
+        }
+        if (keys.isEmpty())
+            addKey(keys, API_KEY);
+        if (keys.isEmpty()) {
             Log.e(TAG, "API Key is missing! Please set it in Settings.");
+            keys.add("");
         }
+        return keys;
+    }
 
-        String modelName = SettingsManager.getModelName(context);
-        GenerativeModel gm = new GenerativeModel(modelName, safeKey != null ? safeKey : "");
-        model = GenerativeModelFutures.from(gm);
+    private static void addKey(List<String> keys, String key) {
+        if (key != null && !key.trim().isEmpty() && !keys.contains(key.trim()))
+            keys.add(key.trim());
     }
 
     public interface GeminiCallback {
+        // Full response text, once it is complete
         void onSuccess(String response);
 
         void onError(Throwable t);
+
+        default void onRequestSent() {
+        }
+
+        default void onFirstChunk() {
+        }
+
+        // Streaming mode only: the next piece of text, in order
+        default void onPartialResponse(String chunk) {
+        }
+
+        // Structured mode only, instead of onSuccess. Called on a background thread.
+        default void onStructuredResult(AnalysisResult result) {
+            onSuccess(result.displayText);
+        }
     }
 
-    public void startNewSession(Bitmap screenshot, GeminiCallback callback) {
-        // Fresh start logic managed by creating new chat or just sending fresh prompt
-        // with image
-        chatSession = model.startChat();
+    // Model client variant for structured replies, see ModelClientRegistry
+    static final String VARIANT_JSON = "json";
 
-        Content content = new Content.Builder()
-                .addText(SYSTEM_INSTRUCTION + "\n\n[Attached Image for analysis]")
-                .addImage(screenshot)
-                .build();
+    static GenerationConfig structuredConfig() {
+        Schema<?> heroName = Schema.Companion.str("hero", "Hero name as shown in game");
+        GenerationConfig.Builder config = new GenerationConfig.Builder();
+        config.responseMimeType = "application/json";
+        config.responseSchema = Schema.Companion.obj("analysis", "MLBB match analysis",
+                Schema.Companion.arr(AnalysisResult.FIELD_ALLIES, "Heroes on my team", heroName),
+                Schema.Companion.arr(AnalysisResult.FIELD_ENEMIES, "Heroes on the enemy team", heroName),
+                Schema.Companion.str(AnalysisResult.FIELD_SELECTED_HERO, "The hero I play, empty if unknown"),
+                Schema.Companion.arr(AnalysisResult.FIELD_RECOMMENDATIONS, "Actionable advice, one point each",
+                        Schema.Companion.str("recommendation", "One piece of advice")),
+                Schema.Companion.arr(AnalysisResult.FIELD_OPTIONS, "Short follow-ups I can tap",
+                        Schema.Companion.str("option", "Follow-up label")),
+                Schema.Companion.str(AnalysisResult.FIELD_SUMMARY, "The answer itself, concise"));
+        return config.build();
+    }
+
+    // Encoded screenshot being prepared ahead of Send. Reuse it for startNewSession, or cancel it
+    // when the screenshot is replaced.
+    public static final class PreparedImage {
+        private final ListenableFuture<ImageEncoder.EncodedImage> encoded;
+
+        private PreparedImage(ListenableFuture<ImageEncoder.EncodedImage> encoded) {
+            this.encoded = encoded;
+        }
+
+        public void cancel() {
+            encoded.cancel(false);
+        }
+    }
+
+    // Starts encoding straight away so the work overlaps with the user's think time
+    public PreparedImage prepareImage(Bitmap screenshot) {
+        return new PreparedImage(encodeExecutor.submit(() -> imageEncoder.encode(screenshot)));
+    }
+
+    // Runs after every encode submitted so far has finished reading its bitmap
+    public void afterPendingEncodes(Runnable runnable) {
+        encodeExecutor.execute(runnable);
+    }
+
+    public void startNewSession(Bitmap screenshot, GeminiCallback callback) {
+        startNewSession(prepareImage(screenshot), callback);
+    }
 
-        ListenableFuture<GenerateContentResponse> response = chatSession.sendMessage(content);
+    public void startNewSession(PreparedImage prepared, GeminiCallback callback) {
+        // Fresh start: a new image wipes the previous conversation
+        Session newSession = new Session("slots", CACHE_MAX_DISTANCE);
+        session = newSession;
 
-        Futures.addCallback(response, new FutureCallback<GenerateContentResponse>() {
+        Futures.addCallback(prepared.encoded, new FutureCallback<ImageEncoder.EncodedImage>() {
             @Override
-            public void onSuccess(GenerateContentResponse result) {
-                callback.onSuccess(result.getText());
+            public void onSuccess(ImageEncoder.EncodedImage image) {
+                LatencyTracer.mark(LatencyTracer.Stage.ENCODE);
+                Content content = new Content.Builder()
+                        .addText(newSession.instruction() + "\n\n[Attached Image for analysis]")
+                        .addBlob(image.mimeType, image.bytes)
+                        .build();
+                begin(newSession, content, image.hash, callback);
             }
 
             @Override
             public void onFailure(Throwable t) {
-                Log.e(TAG, "Gemini Error", t);
+                Log.e(TAG, "Image encoding failed", t);
                 callback.onError(t);
             }
         }, executor);
     }
 
+    // Starts from the heroes recognised on the device, so only their names are uploaded.
+    // rosterHash stands in for the screenshot hash in the caches, and only an exact match hits.
+    public void startNewSession(String rosterPrompt, long rosterHash, GeminiCallback callback) {
+        Session newSession = new Session("roster", 0);
+        session = newSession;
+
+        Content content = new Content.Builder()
+                .addText(newSession.instruction()
+                        + "\n\n[The screenshot was read on my phone; treat this as the image upload]\n"
+                        + rosterPrompt)
+                .build();
+        executor.execute(() -> begin(newSession, content, rosterHash, callback));
+    }
+
+    // Runs on executor: answers the first prompt of a session from the caches or the API
+    private void begin(Session newSession, Content content, long hash, GeminiCallback callback) {
+        newSession.imageHash = hash;
+        String cached = responseCache.get(hash, newSession.variant, newSession.maxDistance);
+        if (cached == null) {
+            cached = readDiskCache(newSession.variant, hash, "", newSession.maxDistance);
+            if (cached != null)
+                responseCache.put(hash, newSession.variant, cached);
+        }
+        if (cached != null) {
+            Log.d(TAG, "Reusing cached analysis for " + Long.toHexString(hash));
+            // Pick the conversation up where the cached reply left it
+            newSession.append(content, cached, "");
+            callback.onFirstChunk();
+            deliver(newSession, null, cached, callback, false);
+            return;
+        }
+
+        send(newSession, content, callback, new RequestRunner.ReplyKey(newSession.variant, hash, ""));
+    }
+
     public void sendMessage(String message, GeminiCallback callback) {
-        if (chatSession == null) {
+        Session current = session;
+        if (current == null) {
             callback.onError(new IllegalStateException("Session not started"));
             return;
         }
@@ -99,19 +307,279 @@ public class GeminiHelper {
                 .addText(message)
                 .build();
 
-        ListenableFuture<GenerateContentResponse> response = chatSession.sendMessage(content);
+        // Answers depend on earlier picks (e.g. which hero), so key on the whole question path.
+        // The path only grows once this message is answered, see Session.append.
+        Long imageHash = current.imageHash;
+        String questions = current.questions + "\n" + message;
+        current.onUserMessage(message);
+
+        executor.execute(() -> {
+            if (imageHash != null) {
+                String cached = readDiskCache(current.variant, imageHash, questions, current.maxDistance);
+                if (cached != null) {
+                    current.append(content, cached, questions);
+                    callback.onFirstChunk();
+                    deliver(current, null, cached, callback, false);
+                    return;
+                }
+            }
+            send(current, content, callback,
+                    imageHash != null ? new RequestRunner.ReplyKey(current.variant, imageHash, questions) : null);
+        });
+    }
+
+    // The conversation is kept here rather than in a ChatFutures, so a request can be sent (or
+    // retried) through any key's model by starting a chat from this history.
+    // In image-once mode the screenshot turn is replaced by a MatchState after the first reply,
+    // and only the last windowTurns exchanges are kept, so follow-ups stay the same size.
+    // The reply format is read from the settings when the session starts and kept for its length.
+    private final class Session {
+        private final List<Content> history = new ArrayList<>();
+        private MatchState state;
+        final boolean structured; // JSON replies, parsed into AnalysisResult on executor
+        final boolean streaming;
+        final List<GenerativeModelFutures> models = new ArrayList<>(); // One per key
+        // Model and prompt the cached replies were made with, and what their key hashes:
+        // the portraits on a screenshot, or the heroes recognised on device
+        final String variant;
+        final int maxDistance; // How far a cached key may be from imageHash and still hit
+        // Disk cache key: screenshot (or roster) hash plus the questions answered so far
+        volatile Long imageHash;
+        volatile String questions = "";
+
+        // keyKind: what the cache key hashes, "slots" or "roster"
+        Session(String keyKind, int maxDistance) {
+            structured = SettingsManager.isStructuredResponseEnabled(appContext);
+            // Partial JSON is not displayable, so structured replies arrive in one piece
+            streaming = SettingsManager.isStreamingEnabled(appContext) && !structured;
+            for (String apiKey : apiKeys) {
+                models.add(structured
+                        ? ModelClientRegistry.get(apiKey, modelName, VARIANT_JSON, structuredConfig())
+                        : ModelClientRegistry.get(apiKey, modelName));
+            }
+            this.variant = modelName + "|" + (structured ? "json" : "text") + "|" + PROMPT_VERSION + "|" + keyKind;
+            this.maxDistance = maxDistance;
+        }
+
+        String instruction() {
+            return structured ? STRUCTURED_INSTRUCTION : SYSTEM_INSTRUCTION;
+        }
+
+        synchronized List<Content> snapshot() {
+            List<Content> turns = new ArrayList<>(history.size() + 2);
+            if (state != null) {
+                turns.add(new Content.Builder()
+                        .addText(instruction() + "\n\n[Match state from the screenshot analysed earlier]\n" + state.toPrompt())
+                        .build());
+                turns.add(modelContent(STATE_ACK));
+            }
+            turns.addAll(history);
+            return turns;
+        }
+
+        // questions: the path including prompt, or null when the session is not cached
+        synchronized void append(Content prompt, String reply, String questions) {
+            if (questions != null)
+                this.questions = questions;
+            if (imageOnce && state == null && history.isEmpty()) {
+                state = MatchState.fromReply(reply, structured); // The image turn is dropped
+                return;
+            }
+            history.add(prompt);
+            history.add(modelContent(reply));
+            if (imageOnce) {
+                while (history.size() > 2 * windowTurns) {
+                    history.remove(0);
+                    history.remove(0);
+                }
+            }
+        }
+
+        synchronized void onUserMessage(String message) {
+            if (state != null)
+                state.onUserMessage(message);
+        }
+    }
+
+    // One prompt of a session, as handed to runner
+    private static final class Turn {
+        final Session session;
+        final Content prompt;
+
+        Turn(Session session, Content prompt) {
+            this.session = session;
+            this.prompt = prompt;
+        }
+    }
+
+    private static Content modelContent(String text) {
+        Content.Builder builder = new Content.Builder();
+        builder.setRole("model");
+        builder.addText(text);
+        return builder.build();
+    }
+
+    // Runs on executor
+    private String readDiskCache(String variant, long imageHash, String question, int maxDistance) {
+        return readDiskCache(variant, imageHash, question, maxDistance, DISK_CACHE_MAX_AGE_MS);
+    }
 
-        Futures.addCallback(response, new FutureCallback<GenerateContentResponse>() {
+    private String readDiskCache(String variant, long imageHash, String question, int maxDistance,
+            long maxAgeMs) {
+        try {
+            return diskCache.get(imageHash, variant, question, maxDistance, maxAgeMs);
+        } catch (IOException e) {
+            Log.w(TAG, "Disk cache read failed", e);
+            return null;
+        }
+    }
+
+    // Runs on executor. replyKey: null for replies that should not be cached
+    private void send(Session target, Content content, GeminiCallback callback, RequestRunner.ReplyKey replyKey) {
+        // Hedge settings apply from the next request, without a new helper
+        boolean hedging = SettingsManager.isHedgingEnabled(appContext);
+        if (hedging)
+            hedgePolicy.setLimits(SettingsManager.getHedgePercentile(appContext),
+                    SettingsManager.getHedgeMaxRate(appContext));
+        runner.send(new Turn(target, content), replyKey, hedging, new RequestRunner.Callback() {
             @Override
-            public void onSuccess(GenerateContentResponse result) {
-                callback.onSuccess(result.getText());
+            public void onRequestSent() {
+                callback.onRequestSent();
             }
 
             @Override
-            public void onFailure(Throwable t) {
-                Log.e(TAG, "Gemini Error", t);
+            public void onFirstChunk() {
+                callback.onFirstChunk();
+            }
+
+            @Override
+            public void onPartialResponse(String chunk) {
+                callback.onPartialResponse(chunk);
+            }
+
+            @Override
+            public void onReply(String text, boolean offline) {
+                if (text != null && !text.isEmpty())
+                    target.append(content, text, replyKey != null ? replyKey.question : null);
+                // An offline reply came from the disk cache and is not stored again
+                deliver(target, offline ? null : replyKey, text, callback, offline);
+            }
+
+            @Override
+            public void onError(Throwable t) {
                 callback.onError(t);
             }
-        }, executor);
+        });
+    }
+
+    // Caches the reply unless replyKey is null, then hands the text to the callback in the
+    // session's format. offline: a cached reply shown because the API could not answer
+    private void deliver(Session source, RequestRunner.ReplyKey replyKey, String text, GeminiCallback callback,
+            boolean offline) {
+        if (replyKey != null && text != null && !text.isEmpty()) {
+            if (replyKey.question.isEmpty()) {
+                responseCache.put(replyKey.imageHash, replyKey.variant, text);
+            }
+            executor.execute(() -> {
+                try {
+                    diskCache.put(replyKey.imageHash, replyKey.variant, replyKey.question, text);
+                } catch (IOException e) {
+                    Log.w(TAG, "Disk cache write failed", e);
+                }
+            });
+        }
+        if (source.structured) {
+            deliverStructured(text, callback, offline);
+        } else {
+            callback.onSuccess(offline ? AnalysisResult.OFFLINE_LABEL + "\n" + text : text);
+        }
+    }
+
+    // Runs on executor, so the UI only binds the parsed result
+    private void deliverStructured(String json, GeminiCallback callback, boolean offline) {
+        AnalysisResult result;
+        try {
+            result = AnalysisResult.fromJson(json != null ? json : "");
+        } catch (JSONException e) {
+            Log.w(TAG, "Structured reply was not valid JSON, showing it as text", e);
+            callback.onSuccess(offline ? AnalysisResult.OFFLINE_LABEL + "\n" + json : json);
+            return;
+        }
+        LatencyTracer.mark(LatencyTracer.Stage.RESPONSE_PARSED);
+        callback.onStructuredResult(offline ? result.asOffline() : result);
+    }
+
+    // Sends a turn through its session's model for the key, streamed or in one piece
+    private final class ChatTransport implements RequestRunner.Transport<Turn> {
+        @Override
+        public RequestRunner.Call send(int key, Turn turn, RequestRunner.Listener listener) {
+            ChatFutures chat = turn.session.models.get(key).startChat(turn.session.snapshot());
+            if (turn.session.streaming) {
+                StreamingSubscriber subscriber = new StreamingSubscriber(listener);
+                chat.sendMessageStream(turn.prompt).subscribe(subscriber);
+                return subscriber::cancel;
+            }
+            ListenableFuture<GenerateContentResponse> response = chat.sendMessage(turn.prompt);
+            Futures.addCallback(response, new FutureCallback<GenerateContentResponse>() {
+                @Override
+                public void onSuccess(GenerateContentResponse result) {
+                    listener.onComplete(result.getText());
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    listener.onError(t);
+                }
+            }, executor);
+            return () -> response.cancel(true);
+        }
+    }
+
+    // Forwards each streamed chunk and accumulates the full text for onComplete
+    private static final class StreamingSubscriber implements Subscriber<GenerateContentResponse> {
+        private final RequestRunner.Listener listener;
+        private final StringBuilder fullText = new StringBuilder();
+        private Subscription subscription;
+        private boolean cancelled = false;
+
+        StreamingSubscriber(RequestRunner.Listener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (subscription != null)
+                subscription.cancel();
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            synchronized (this) {
+                this.subscription = subscription;
+                if (cancelled) {
+                    subscription.cancel();
+                    return;
+                }
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(GenerateContentResponse chunk) {
+            String text = chunk.getText();
+            if (text != null)
+                fullText.append(text);
+            listener.onChunk(text);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            listener.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            listener.onComplete(fullText.toString());
+        }
     }
 }
@@ -0,0 +1,75 @@
+package com.example.mlbbop.managers;
+
+import java.util.Arrays;
+
+// Decides when to send a duplicate ("hedge") of a slow request.
+// The delay is a percentile of recent time-to-first-byte samples, so only the slowest requests
+// get hedged. Hedges are capped at maxRate of all requests to bound the extra quota spent.
+public class HedgePolicy {
+    private static final int WINDOW = 64;
+    private static final int MIN_SAMPLES = 8; // Below this, use defaultDelayMs
+    private static final long MIN_DELAY_MS = 500;
+
+    private double percentile;
+    private double maxRate;
+    private final long defaultDelayMs;
+    private final long[] samples = new long[WINDOW];
+    private final long[] sortScratch = new long[WINDOW];
+    private int sampleCount = 0;
+
+    private long requests = 0;
+    private long hedgesFired = 0;
+    private long hedgesWon = 0;
+
+    // percentile in (0, 100), maxRate in [0, 1]
+    public HedgePolicy(double percentile, double maxRate, long defaultDelayMs) {
+        this.percentile = percentile;
+        this.maxRate = maxRate;
+        this.defaultDelayMs = defaultDelayMs;
+    }
+
+    // Settings changed: later delays and hedges use the new limits, the samples and counts stay
+    public synchronized void setLimits(double percentile, double maxRate) {
+        this.percentile = percentile;
+        this.maxRate = maxRate;
+    }
+
+    public synchronized void recordFirstByte(long latencyMs) {
+        samples[sampleCount % WINDOW] = latencyMs;
+        sampleCount++;
+    }
+
+    public synchronized long delayMs() {
+        int n = Math.min(sampleCount, WINDOW);
+        if (n < MIN_SAMPLES)
+            return defaultDelayMs;
+        System.arraycopy(samples, 0, sortScratch, 0, n);
+        Arrays.sort(sortScratch, 0, n);
+        int index = Math.min(n - 1, (int) Math.ceil(percentile / 100.0 * n) - 1);
+        return Math.max(MIN_DELAY_MS, sortScratch[Math.max(0, index)]);
+    }
+
+    public synchronized void onRequest() {
+        requests++;
+    }
+
+    // Reserves a hedge if that keeps hedges within maxRate of requests
+    public synchronized boolean tryHedge() {
+        if (hedgesFired + 1 > maxRate * requests)
+            return false;
+        hedgesFired++;
+        return true;
+    }
+
+    public synchronized void onHedgeWon() {
+        hedgesWon++;
+    }
+
+    public synchronized long getHedgesFired() {
+        return hedgesFired;
+    }
+
+    public synchronized long getHedgesWon() {
+        return hedgesWon;
+    }
+}
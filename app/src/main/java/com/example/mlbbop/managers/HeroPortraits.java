@@ -0,0 +1,59 @@
+package com.example.mlbbop.managers;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// The bundled hero portraits as a PortraitMatcher. Decoding them takes a while, so it is done once
+// per process, on first use, and the matcher is shared by every caller.
+public final class HeroPortraits {
+    private static final String TAG = "HeroPortraits";
+    private static PortraitMatcher matcher;
+
+    private HeroPortraits() {
+    }
+
+    // Blocks while the portraits are decoded; call off the main thread
+    public static synchronized PortraitMatcher matcher(Resources resources) {
+        if (matcher == null)
+            matcher = load(resources);
+        return matcher;
+    }
+
+    private static PortraitMatcher load(Resources resources) {
+        long startNs = System.nanoTime();
+        Map<String, Integer> drawables = TextWithImageHelper.getHeroDrawables();
+        String[] names = new String[drawables.size()];
+        int[][] portraits = new int[drawables.size()][];
+        int[] widths = new int[drawables.size()];
+        int[] heights = new int[drawables.size()];
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false; // Features are resolution independent, skip density scaling
+        int count = 0;
+        for (Map.Entry<String, Integer> entry : drawables.entrySet()) {
+            Bitmap bitmap = BitmapFactory.decodeResource(resources, entry.getValue(), options);
+            if (bitmap == null)
+                continue;
+            names[count] = entry.getKey();
+            widths[count] = bitmap.getWidth();
+            heights[count] = bitmap.getHeight();
+            portraits[count] = new int[widths[count] * heights[count]];
+            bitmap.getPixels(portraits[count], 0, widths[count], 0, 0, widths[count], heights[count]);
+            bitmap.recycle();
+            count++;
+        }
+        if (count < names.length) {
+            names = Arrays.copyOf(names, count);
+            portraits = Arrays.copyOf(portraits, count);
+            widths = Arrays.copyOf(widths, count);
+            heights = Arrays.copyOf(heights, count);
+        }
+        Log.d(TAG, "Loaded " + count + " portraits in " + (System.nanoTime() - startNs) / 1_000_000 + " ms");
+        return new PortraitMatcher(names, portraits, widths, heights);
+    }
+}
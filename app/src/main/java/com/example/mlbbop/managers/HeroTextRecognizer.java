@@ -0,0 +1,247 @@
+package com.example.mlbbop.managers;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// On-device OCR over a draft or loading screen. Recognised words are matched against the bundled
+// hero names; when all 10 heroes are read cleanly the first request can be a short text prompt
+// instead of a screenshot upload.
+public class HeroTextRecognizer {
+    private static final String TAG = "HeroTextRecognizer";
+    public static final int MATCH_HEROES = 10;
+    private static final int MAX_NAME_WORDS = 3; // "Popol and Kupa"
+    private static final float MIN_LINE_CONFIDENCE = 0.6f;
+
+    public interface Callback {
+        // Called on a background thread
+        void onResult(Result result);
+    }
+
+    public interface RowsCallback {
+        // Called on a background thread with the heroes of each row; a row is empty when nothing
+        // in it was read with confidence
+        void onRows(List<List<String>> heroes);
+    }
+
+    // Heroes in the order they were read, with the centre of each name as a fraction of the screen
+    public static final class Result {
+        public final List<String> heroes;
+        private final float[] centerX;
+        private final float[] centerY;
+        public final boolean confident;
+
+        private Result(List<String> heroes, float[] centerX, float[] centerY, boolean confident) {
+            this.heroes = heroes;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.confident = confident;
+        }
+
+        static Result empty() {
+            return new Result(Collections.emptyList(), new float[0], new float[0], false);
+        }
+
+        // Cache key standing in for the screenshot hash: the names plus the screen quadrant of each
+        public long hash() {
+            List<String> entries = new ArrayList<>(heroes.size());
+            for (int i = 0; i < heroes.size(); i++) {
+                entries.add(heroes.get(i).toLowerCase(Locale.ROOT) + "@" + (centerX[i] < 0.5f ? 'L' : 'R')
+                        + (centerY[i] < 0.5f ? 'T' : 'B'));
+            }
+            Collections.sort(entries);
+            long hash = 0xcbf29ce484222325L; // FNV-1a
+            for (String entry : entries) {
+                for (int i = 0; i < entry.length(); i++) {
+                    hash ^= entry.charAt(i);
+                    hash *= 0x100000001b3L;
+                }
+                hash ^= '|';
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        // Positions let the model tell the teams apart without seeing the screen
+        public String toPrompt() {
+            StringBuilder prompt = new StringBuilder("Heroes read from the screen, with their position (x%, y%): ");
+            for (int i = 0; i < heroes.size(); i++) {
+                if (i > 0)
+                    prompt.append(", ");
+                prompt.append(heroes.get(i)).append(" (").append(Math.round(centerX[i] * 100)).append("%, ")
+                        .append(Math.round(centerY[i] * 100)).append("%)");
+            }
+            prompt.append("\nOn the draft screen my team is on the left; on the loading screen it is the top row.");
+            return prompt.toString();
+        }
+    }
+
+    private final TextRecognizer recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private Map<String, String> nameIndex; // Normalised name -> display name, built on executor
+
+    public void recognize(Bitmap screenshot, Callback callback) {
+        // ML Kit cannot read hardware bitmaps
+        Bitmap pixels = ScreenCaptureManager.toSoftwareBitmap(screenshot);
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+        recognizer.process(InputImage.fromBitmap(pixels, 0)).addOnCompleteListener(executor, task -> {
+            if (pixels != screenshot)
+                pixels.recycle();
+            if (!task.isSuccessful()) {
+                Log.w(TAG, "Text recognition failed", task.getException());
+                callback.onResult(Result.empty());
+                return;
+            }
+            callback.onResult(match(task.getResult(), width, height));
+        });
+    }
+
+    // Hero names in a tile of stacked rows, such as the labels beside several portraits, read in
+    // one pass. Row i ends just above rowBottoms[i]; each line is given to the row holding its centre.
+    public void recognizeRows(Bitmap tile, int[] rowBottoms, RowsCallback callback) {
+        recognizer.process(InputImage.fromBitmap(tile, 0)).addOnCompleteListener(executor, task -> {
+            List<List<String>> rows = new ArrayList<>(rowBottoms.length);
+            for (int i = 0; i < rowBottoms.length; i++) {
+                rows.add(new ArrayList<>());
+            }
+            if (!task.isSuccessful()) {
+                Log.w(TAG, "Text recognition failed", task.getException());
+                callback.onRows(rows);
+                return;
+            }
+            boolean[] lowConfidence = new boolean[rowBottoms.length];
+            List<Rect> boxes = new ArrayList<>();
+            for (Text.TextBlock block : task.getResult().getTextBlocks()) {
+                for (Text.Line line : block.getLines()) {
+                    Rect box = line.getBoundingBox();
+                    int row = box != null ? rowAt(rowBottoms, box.centerY()) : -1;
+                    if (row >= 0 && collectLine(line, rows.get(row), boxes))
+                        lowConfidence[row] = true;
+                }
+            }
+            for (int i = 0; i < rowBottoms.length; i++) {
+                if (lowConfidence[i])
+                    rows.get(i).clear();
+            }
+            callback.onRows(rows);
+        });
+    }
+
+    public void close() {
+        recognizer.close();
+    }
+
+    private Result match(Text text, int width, int height) {
+        List<String> heroes = new ArrayList<>();
+        List<Rect> boxes = new ArrayList<>();
+        boolean lowConfidence = collect(text, heroes, boxes);
+
+        float[] centerX = new float[heroes.size()];
+        float[] centerY = new float[heroes.size()];
+        for (int i = 0; i < heroes.size(); i++) {
+            Rect box = boxes.get(i);
+            centerX[i] = box != null ? box.exactCenterX() / width : 0.5f;
+            centerY[i] = box != null ? box.exactCenterY() / height : 0.5f;
+        }
+        // Fewer names means a hero was missed, more means a player name looked like one
+        boolean confident = heroes.size() == MATCH_HEROES && !lowConfidence;
+        Log.d(TAG, "Read " + heroes.size() + " heroes" + (confident ? "" : " (low confidence)"));
+        return new Result(heroes, centerX, centerY, confident);
+    }
+
+    // Adds each distinct hero named in the text, with the box of its line. Runs on executor.
+    // Returns true if any of them came from a line read with low confidence.
+    private boolean collect(Text text, List<String> heroes, List<Rect> boxes) {
+        boolean lowConfidence = false;
+        for (Text.TextBlock block : text.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) {
+                if (collectLine(line, heroes, boxes))
+                    lowConfidence = true;
+            }
+        }
+        return lowConfidence;
+    }
+
+    // collect() for one line
+    private boolean collectLine(Text.Line line, List<String> heroes, List<Rect> boxes) {
+        if (nameIndex == null)
+            nameIndex = buildIndex();
+
+        String[] words = normalize(line.getText()).split(" ");
+        int found = heroes.size();
+        for (int start = 0; start < words.length; start++) {
+            // Longest name first, so "Lapu-Lapu" is not read as two words
+            for (int n = Math.min(MAX_NAME_WORDS, words.length - start); n > 0; n--) {
+                String hero = nameIndex.get(join(words, start, n));
+                if (hero == null)
+                    continue;
+                if (!heroes.contains(hero)) {
+                    heroes.add(hero);
+                    boxes.add(line.getBoundingBox());
+                }
+                start += n - 1;
+                break;
+            }
+        }
+        return heroes.size() > found && line.getConfidence() < MIN_LINE_CONFIDENCE;
+    }
+
+    private static int rowAt(int[] rowBottoms, int y) {
+        for (int i = 0; i < rowBottoms.length; i++) {
+            if (y < rowBottoms[i])
+                return i;
+        }
+        return -1;
+    }
+
+    private static Map<String, String> buildIndex() {
+        Map<String, String> index = new HashMap<>();
+        for (String hero : TextWithImageHelper.getHeroNames()) {
+            index.put(normalize(hero), hero);
+        }
+        return index;
+    }
+
+    // Lower case words separated by single spaces, so "X.Borg" and "x borg" compare equal
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                sb.append(c);
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ')
+            sb.setLength(end - 1);
+        return sb.toString();
+    }
+
+    private static String join(String[] words, int start, int count) {
+        if (count == 1)
+            return words[start];
+        StringBuilder sb = new StringBuilder(words[start]);
+        for (int i = start + 1; i < start + count; i++) {
+            sb.append(' ').append(words[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.mlbbop.managers;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+
+// Downscales and compresses a screenshot so the upload fits a byte budget.
+// Not thread-safe: the output buffer is reused, so keep one instance per worker thread.
+public class ImageEncoder {
+    private static final String TAG = "ImageEncoder";
+    private static final int MIN_QUALITY = 30;
+    private static final int MAX_QUALITY = 90;
+    private static final int MAX_SEARCH_STEPS = 5;
+    // Thumbnail the cache key is taken from; portraits come out about 30 pixels high
+    private static final int HASH_HEIGHT = 240;
+
+    public static final String FORMAT_JPEG = "jpeg";
+    public static final String FORMAT_WEBP = "webp";
+
+    public static final class EncodedImage {
+        public final byte[] bytes;
+        public final String mimeType;
+        public final int width;
+        public final int height;
+        public final int quality;
+        public final long hash; // Cache key, see PerceptualHash.cacheKey
+
+        EncodedImage(byte[] bytes, String mimeType, int width, int height, int quality, long hash) {
+            this.bytes = bytes;
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+            this.hash = hash;
+        }
+    }
+
+    private final int longEdge;
+    private final int byteBudget;
+    private final Bitmap.CompressFormat compressFormat;
+    private final String mimeType;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+
+    public ImageEncoder(int longEdge, String format, int byteBudget) {
+        this.longEdge = longEdge;
+        this.byteBudget = byteBudget;
+        if (FORMAT_WEBP.equals(format)) {
+            this.compressFormat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY
+                    : Bitmap.CompressFormat.WEBP;
+            this.mimeType = "image/webp";
+        } else {
+            this.compressFormat = Bitmap.CompressFormat.JPEG;
+            this.mimeType = "image/jpeg";
+        }
+    }
+
+    public EncodedImage encode(Bitmap source) {
+        Bitmap pixels = ScreenCaptureManager.toSoftwareBitmap(source);
+        Bitmap scaled = scaleToLongEdge(pixels);
+        try {
+            // Binary search for the highest quality that still fits the budget
+            int low = MIN_QUALITY;
+            int high = MAX_QUALITY;
+            byte[] best = null;
+            int bestQuality = MIN_QUALITY;
+            for (int step = 0; step < MAX_SEARCH_STEPS && low <= high; step++) {
+                int quality = (low + high) >>> 1;
+                int size = compress(scaled, quality);
+                if (size <= byteBudget) {
+                    best = out.toByteArray();
+                    bestQuality = quality;
+                    low = quality + 1;
+                } else {
+                    high = quality - 1;
+                }
+            }
+            if (best == null) {
+                // Even the floor is over budget; send it anyway rather than failing
+                compress(scaled, MIN_QUALITY);
+                best = out.toByteArray();
+            }
+            Log.d(TAG, "Encoded " + scaled.getWidth() + "x" + scaled.getHeight() + " " + mimeType
+                    + " q=" + bestQuality + " " + best.length + " bytes");
+            return new EncodedImage(best, mimeType, scaled.getWidth(), scaled.getHeight(), bestQuality,
+                    cacheKey(scaled, SlotLayout.DRAFT));
+        } finally {
+            if (scaled != pixels)
+                scaled.recycle();
+            if (pixels != source)
+                pixels.recycle();
+        }
+    }
+
+    // PerceptualHash.cacheKey of a software bitmap, on a thumbnail so few pixels are copied out
+    public static long cacheKey(Bitmap bitmap, SlotLayout layout) {
+        int width = Math.max(1, Math.round((float) bitmap.getWidth() * HASH_HEIGHT / bitmap.getHeight()));
+        Bitmap thumb = Bitmap.createScaledBitmap(bitmap, width, HASH_HEIGHT, true);
+        try {
+            int[] pixels = new int[width * HASH_HEIGHT];
+            thumb.getPixels(pixels, 0, width, 0, 0, width, HASH_HEIGHT);
+            return PerceptualHash.cacheKey(pixels, width, HASH_HEIGHT, layout, new int[PerceptualHash.GRID_SIZE]);
+        } finally {
+            if (thumb != bitmap)
+                thumb.recycle();
+        }
+    }
+
+    private int compress(Bitmap bitmap, int quality) {
+        out.reset();
+        bitmap.compress(compressFormat, quality, out);
+        return out.size();
+    }
+
+    private Bitmap scaleToLongEdge(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int currentLongEdge = Math.max(width, height);
+        if (longEdge <= 0 || currentLongEdge <= longEdge)
+            return bitmap;
+
+        float scale = (float) longEdge / currentLongEdge;
+        return Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(width * scale)),
+                Math.max(1, Math.round(height * scale)),
+                true);
+    }
+}
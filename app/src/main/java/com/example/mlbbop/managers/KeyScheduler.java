@@ -0,0 +1,107 @@
+package com.example.mlbbop.managers;
+
+// Spreads requests across the configured API keys.
+// Each acquire() picks the key with the fewest requests in flight, breaking ties by a smoothed
+// latency. A key that hits its rate limit sits out a cooldown that doubles with every
+// consecutive 429, up to MAX_COOLDOWN_MS, and is reset by its next success.
+public class KeyScheduler {
+    private static final long BASE_COOLDOWN_MS = 10_000;
+    private static final long MAX_COOLDOWN_MS = 5 * 60_000;
+    private static final double LATENCY_SMOOTHING = 0.2; // Weight of the newest sample
+
+    private final int keyCount;
+    private final int[] inFlight;
+    private final int[] consecutiveLimits;
+    private final long[] cooldownUntilMs;
+    private final double[] latencyMs;
+
+    public KeyScheduler(int keyCount) {
+        this.keyCount = keyCount;
+        this.inFlight = new int[keyCount];
+        this.consecutiveLimits = new int[keyCount];
+        this.cooldownUntilMs = new long[keyCount];
+        this.latencyMs = new double[keyCount];
+    }
+
+    public int keyCount() {
+        return keyCount;
+    }
+
+    // Reserves a key; report the outcome with exactly one of the on* methods.
+    // When every key is cooling down, the one that recovers first is returned anyway.
+    public synchronized int acquire() {
+        int best = pick(-1);
+        if (best < 0) {
+            for (int key = 0; key < keyCount; key++) {
+                if (best < 0 || cooldownUntilMs[key] < cooldownUntilMs[best])
+                    best = key;
+            }
+        }
+        inFlight[best]++;
+        return best;
+    }
+
+    // A usable key other than excluded, reserved like acquire(); -1 when there is none, e.g. for a
+    // hedge with a single key, which would only duplicate the request on the same quota
+    public synchronized int acquireExcept(int excluded) {
+        int best = pick(excluded);
+        if (best >= 0)
+            inFlight[best]++;
+        return best;
+    }
+
+    // Least loaded key that is not cooling down, or -1
+    private int pick(int excluded) {
+        long now = nowMs();
+        int best = -1;
+        for (int key = 0; key < keyCount; key++) {
+            if (key == excluded || cooldownUntilMs[key] > now)
+                continue;
+            if (best < 0 || inFlight[key] < inFlight[best]
+                    || (inFlight[key] == inFlight[best] && latencyMs[key] < latencyMs[best])) {
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    // True when some key other than the given one is not cooling down
+    public synchronized boolean hasHealthyKeyBesides(int key) {
+        long now = nowMs();
+        for (int other = 0; other < keyCount; other++) {
+            if (other != key && cooldownUntilMs[other] <= now)
+                return true;
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess(int key, long latencyMillis) {
+        release(key);
+        consecutiveLimits[key] = 0;
+        cooldownUntilMs[key] = 0;
+        latencyMs[key] = latencyMs[key] == 0
+                ? latencyMillis
+                : latencyMs[key] + LATENCY_SMOOTHING * (latencyMillis - latencyMs[key]);
+    }
+
+    public synchronized void onRateLimited(int key) {
+        release(key);
+        int strikes = Math.min(++consecutiveLimits[key], 16);
+        long cooldown = Math.min(MAX_COOLDOWN_MS, BASE_COOLDOWN_MS << (strikes - 1));
+        cooldownUntilMs[key] = nowMs() + cooldown;
+    }
+
+    // Any other failure, or a request that was abandoned
+    public synchronized void onFailure(int key) {
+        release(key);
+    }
+
+    private void release(int key) {
+        if (inFlight[key] > 0)
+            inFlight[key]--;
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+}
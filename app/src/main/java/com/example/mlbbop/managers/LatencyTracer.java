@@ -0,0 +1,156 @@
+package com.example.mlbbop.managers;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Records how long each stage of the capture and analyze pipelines takes.
+// A stage's duration is the time since the previous mark in the same pipeline, measured on the
+// monotonic System.nanoTime() clock. The last WINDOW samples per stage are kept in ring buffers.
+public final class LatencyTracer {
+    private static final String TAG = "LatencyTracer";
+    private static final String FILE_NAME = "latency_stats.json";
+    private static final int WINDOW = 256;
+
+    public enum Pipeline {
+        CAPTURE, ANALYZE
+    }
+
+    public enum Stage {
+        HIDE_OVERLAY(Pipeline.CAPTURE),
+        SURFACE_ATTACH(Pipeline.CAPTURE),
+        FIRST_FRAME(Pipeline.CAPTURE),
+        PIXEL_COPY(Pipeline.CAPTURE),
+        SLOTS(Pipeline.ANALYZE),
+        OCR(Pipeline.ANALYZE),
+        ENCODE(Pipeline.ANALYZE),
+        REQUEST_SENT(Pipeline.ANALYZE),
+        FIRST_BYTE(Pipeline.ANALYZE),
+        RESPONSE_PARSED(Pipeline.ANALYZE),
+        SPANS_RENDERED(Pipeline.ANALYZE);
+
+        final Pipeline pipeline;
+
+        Stage(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+    }
+
+    private static final int STAGES = Stage.values().length;
+    private static final int PIPELINES = Pipeline.values().length;
+
+    // Stage samples first, then one "total" row per pipeline
+    private static final long[][] samples = new long[STAGES + PIPELINES][WINDOW];
+    private static final int[] counts = new int[STAGES + PIPELINES];
+    private static final long[] startNs = new long[PIPELINES];
+    private static final long[] lastMarkNs = new long[PIPELINES];
+    private static final boolean[] active = new boolean[PIPELINES];
+    private static final long[] sortScratch = new long[WINDOW];
+    private static final Map<String, Long> counters = new TreeMap<>();
+
+    private static final ExecutorService dumpExecutor = Executors.newSingleThreadExecutor();
+
+    private LatencyTracer() {
+    }
+
+    public static synchronized void begin(Pipeline pipeline) {
+        long now = System.nanoTime();
+        int p = pipeline.ordinal();
+        startNs[p] = now;
+        lastMarkNs[p] = now;
+        active[p] = true;
+    }
+
+    // Marks the end of a stage. Ignored when its pipeline has not been started.
+    public static synchronized void mark(Stage stage) {
+        int p = stage.pipeline.ordinal();
+        if (!active[p])
+            return;
+        long now = System.nanoTime();
+        record(stage.ordinal(), now - lastMarkNs[p]);
+        lastMarkNs[p] = now;
+    }
+
+    // Closes the pipeline and records its end-to-end time
+    public static synchronized void end(Pipeline pipeline) {
+        int p = pipeline.ordinal();
+        if (!active[p])
+            return;
+        record(STAGES + p, System.nanoTime() - startNs[p]);
+        active[p] = false;
+    }
+
+    // Event counters (e.g. hedges fired), reported under "counters" in the snapshot
+    public static synchronized void increment(String counter) {
+        Long count = counters.get(counter);
+        counters.put(counter, count != null ? count + 1 : 1);
+    }
+
+    private static void record(int row, long durationNs) {
+        samples[row][counts[row] % WINDOW] = durationNs;
+        counts[row]++;
+    }
+
+    // {"CAPTURE.HIDE_OVERLAY": {"count": n, "p50_ms": .., "p95_ms": .., "p99_ms": ..}, ...}
+    public static synchronized JSONObject snapshot() {
+        JSONObject root = new JSONObject();
+        try {
+            for (Stage stage : Stage.values()) {
+                putRow(root, stage.pipeline.name() + "." + stage.name(), stage.ordinal());
+            }
+            for (Pipeline pipeline : Pipeline.values()) {
+                putRow(root, pipeline.name() + ".TOTAL", STAGES + pipeline.ordinal());
+            }
+            if (!counters.isEmpty())
+                root.put("counters", new JSONObject(counters));
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to build snapshot", e);
+        }
+        return root;
+    }
+
+    private static void putRow(JSONObject root, String name, int row) throws JSONException {
+        int n = Math.min(counts[row], WINDOW);
+        if (n == 0)
+            return;
+        System.arraycopy(samples[row], 0, sortScratch, 0, n);
+        Arrays.sort(sortScratch, 0, n);
+
+        JSONObject stats = new JSONObject();
+        stats.put("count", counts[row]);
+        stats.put("p50_ms", percentileMs(n, 0.50));
+        stats.put("p95_ms", percentileMs(n, 0.95));
+        stats.put("p99_ms", percentileMs(n, 0.99));
+        root.put(name, stats);
+    }
+
+    // sortScratch[0..n) must be sorted
+    private static double percentileMs(int n, double q) {
+        int index = Math.min(n - 1, (int) Math.ceil(q * n) - 1);
+        return sortScratch[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    // Writes the current snapshot to files/latency_stats.json off the calling thread
+    public static void dumpToFile(Context context) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        String json = snapshot().toString();
+        dumpExecutor.execute(() -> {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to write " + file, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.mlbbop.managers;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Compact text summary of what the first reply learned from a screenshot. Follow-up questions
+// are sent against this instead of the image, so their cost does not depend on the screenshot.
+public class MatchState {
+    private static final int MAX_ANALYSIS_CHARS = 800;
+
+    private final List<String> allies;
+    private final List<String> enemies;
+    private final List<String> heroes; // Every detected hero, when teams are unknown
+    private final String analysis; // Abridged first reply
+    private String selectedHero;
+
+    private MatchState(List<String> allies, List<String> enemies, List<String> heroes, String analysis,
+            String selectedHero) {
+        this.allies = allies;
+        this.enemies = enemies;
+        this.heroes = heroes;
+        this.analysis = analysis;
+        this.selectedHero = selectedHero;
+    }
+
+    public static MatchState fromReply(String reply, boolean structured) {
+        String text = reply != null ? reply : "";
+        if (structured) {
+            try {
+                AnalysisResult result = AnalysisResult.fromJson(text);
+                List<String> heroes = new ArrayList<>(result.allies);
+                heroes.addAll(result.enemies);
+                return new MatchState(result.allies, result.enemies, heroes, abridge(result.summary),
+                        result.selectedHero);
+            } catch (JSONException e) {
+                // Fall through and keep the raw text
+            }
+        }
+
+        // Free text: the hero names come from the [OPTIONS: ...] tag of the detection step
+        List<String> options = new ArrayList<>();
+        StringBuilder visible = new StringBuilder(text.length());
+        OptionsTagExtractor extractor = new OptionsTagExtractor(options::addAll);
+        extractor.feed(text, visible);
+        extractor.finish(visible);
+        return new MatchState(Collections.emptyList(), Collections.emptyList(), options,
+                abridge(visible.toString().trim()), "");
+    }
+
+    private static String abridge(String text) {
+        if (text.length() <= MAX_ANALYSIS_CHARS)
+            return text;
+        return text.substring(0, MAX_ANALYSIS_CHARS) + "...";
+    }
+
+    // Remembers the user's hero when a follow-up is one of the detected names
+    public void onUserMessage(String message) {
+        String trimmed = message.trim();
+        for (String hero : heroes) {
+            if (hero.equalsIgnoreCase(trimmed)) {
+                selectedHero = hero;
+                return;
+            }
+        }
+    }
+
+    public String toPrompt() {
+        StringBuilder prompt = new StringBuilder();
+        if (!allies.isEmpty())
+            prompt.append("Allies: ").append(String.join(", ", allies)).append('\n');
+        if (!enemies.isEmpty())
+            prompt.append("Enemies: ").append(String.join(", ", enemies)).append('\n');
+        if (allies.isEmpty() && enemies.isEmpty() && !heroes.isEmpty())
+            prompt.append("Heroes in this match: ").append(String.join(", ", heroes)).append('\n');
+        if (!selectedHero.isEmpty())
+            prompt.append("My hero: ").append(selectedHero).append('\n');
+        if (!analysis.isEmpty())
+            prompt.append("Your initial analysis: ").append(analysis).append('\n');
+        return prompt.toString().trim();
+    }
+}
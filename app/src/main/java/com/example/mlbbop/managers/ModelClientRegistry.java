@@ -0,0 +1,106 @@
+package com.example.mlbbop.managers;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.ai.client.generativeai.GenerativeModel;
+import com.google.ai.client.generativeai.java.GenerativeModelFutures;
+import com.google.ai.client.generativeai.type.Content;
+import com.google.ai.client.generativeai.type.CountTokensResponse;
+import com.google.ai.client.generativeai.type.GenerationConfig;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Process-wide model clients, one per (API key, model name, variant).
+// Each GenerativeModel owns its own HTTP client, so reusing one keeps its warm connection.
+// prewarm() sends a cheap countTokens call so DNS, TLS and SDK class loading happen before the
+// first real request rather than during it.
+public final class ModelClientRegistry {
+    private static final String TAG = "ModelClientRegistry";
+    private static final long REWARM_AFTER_MS = 4 * 60_000; // Idle connections are closed after ~5 min
+
+    private static final Map<String, GenerativeModelFutures> clients = new HashMap<>();
+    private static final Map<String, Long> lastWarmMs = new HashMap<>();
+    private static final Executor callbackExecutor = Executors.newSingleThreadExecutor();
+
+    private ModelClientRegistry() {
+    }
+
+    public static GenerativeModelFutures get(String apiKey, String modelName) {
+        return get(apiKey, modelName, "", null);
+    }
+
+    // variant names the config (e.g. "json"); clients with different configs must not share one
+    public static synchronized GenerativeModelFutures get(String apiKey, String modelName, String variant,
+            GenerationConfig config) {
+        String id = clientId(apiKey, modelName, variant);
+        GenerativeModelFutures client = clients.get(id);
+        if (client == null) {
+            GenerativeModel gm = config != null
+                    ? new GenerativeModel(modelName, apiKey, config)
+                    : new GenerativeModel(modelName, apiKey);
+            client = GenerativeModelFutures.from(gm);
+            clients.put(id, client);
+        }
+        return client;
+    }
+
+    // Shared background executor for callbacks of one-off calls such as health checks
+    public static Executor callbackExecutor() {
+        return callbackExecutor;
+    }
+
+    // Warms every configured key for the current model, skipping clients warmed recently
+    public static void prewarm(Context context) {
+        String modelName = SettingsManager.getModelName(context);
+        String variant = SettingsManager.isStructuredResponseEnabled(context) ? GeminiHelper.VARIANT_JSON : "";
+        List<String> keys = GeminiHelper.collectApiKeys(context);
+        for (String apiKey : keys) {
+            if (!apiKey.isEmpty())
+                warm(apiKey, modelName, variant);
+        }
+    }
+
+    private static void warm(String apiKey, String modelName, String variant) {
+        String id = clientId(apiKey, modelName, variant);
+        GenerativeModelFutures client;
+        synchronized (ModelClientRegistry.class) {
+            long now = System.nanoTime() / 1_000_000;
+            Long last = lastWarmMs.get(id);
+            if (last != null && now - last < REWARM_AFTER_MS)
+                return;
+            lastWarmMs.put(id, now);
+            client = variant.isEmpty()
+                    ? get(apiKey, modelName)
+                    : get(apiKey, modelName, variant, GeminiHelper.structuredConfig());
+        }
+
+        long startNs = System.nanoTime();
+        Content ping = new Content.Builder().addText("ping").build();
+        Futures.addCallback(client.countTokens(ping), new FutureCallback<CountTokensResponse>() {
+            @Override
+            public void onSuccess(CountTokensResponse result) {
+                Log.d(TAG, "Warmed " + modelName + " in " + (System.nanoTime() - startNs) / 1_000_000 + " ms");
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // Let the next trigger try again
+                synchronized (ModelClientRegistry.class) {
+                    lastWarmMs.remove(id);
+                }
+                Log.w(TAG, "Pre-warm failed for " + modelName, t);
+            }
+        }, callbackExecutor);
+    }
+
+    private static String clientId(String apiKey, String modelName, String variant) {
+        return apiKey + "|" + modelName + "|" + variant;
+    }
+}
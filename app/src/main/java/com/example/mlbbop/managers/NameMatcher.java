@@ -0,0 +1,207 @@
+package com.example.mlbbop.managers;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+// Finds hero and item names in text in one linear pass (Aho-Corasick).
+// Same results as the regex (?i)\b(name1|name2|...)\b with the names sorted longest first: matches
+// are leftmost, then longest, never overlap, and must start and end on a word boundary. Case is
+// folded for ASCII letters only, like (?i). Built once; find() can run on any thread.
+public final class NameMatcher {
+    private final int[] classOf = new int[128]; // char -> alphabet class, 0 = not in any name
+    private final int classes;
+    private final int[] next; // DFA transitions, classes per state
+    private final int[] outLength; // Length of the longest name ending in each state, 0 if none
+    private final int[] outValue;
+    private final int[] outLink; // Nearest suffix state that ends a name, -1 if none
+    private final int maxLength;
+
+    // Reusable output: starts, ends and values of the matches of the last find(), plus scratch
+    // space. Arrays grow as needed and are kept, so steady-state scans do not allocate.
+    public static final class Matches {
+        private int count;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int[] values = new int[16];
+        private int[] pendingStart = new int[0]; // Ring of the longest match per start position
+        private int[] pendingEnd = new int[0];
+        private int[] pendingValue = new int[0];
+
+        public int count() {
+            return count;
+        }
+
+        public int start(int i) {
+            return starts[i];
+        }
+
+        public int end(int i) {
+            return ends[i];
+        }
+
+        public int value(int i) {
+            return values[i];
+        }
+
+        private void add(int start, int end, int value) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            values[count] = value;
+            count++;
+        }
+    }
+
+    // names are matched case-insensitively; values[i] is reported for names.get(i)
+    public NameMatcher(List<String> names, int[] values) {
+        // Alphabet: one class per distinct (lower case) character used by the names
+        int classCount = 1;
+        int totalLength = 0;
+        int longest = 0;
+        for (String name : names) {
+            for (int i = 0; i < name.length(); i++) {
+                char c = fold(name.charAt(i));
+                if (c >= 128)
+                    throw new IllegalArgumentException("Names must be ASCII: " + name);
+                if (classOf[c] == 0)
+                    classOf[c] = classCount++;
+            }
+            totalLength += name.length();
+            longest = Math.max(longest, name.length());
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            classOf[c] = classOf[c + ('a' - 'A')];
+        }
+        classes = classCount;
+        maxLength = longest;
+
+        // Trie
+        int capacity = totalLength + 1;
+        int[] trie = new int[capacity * classes];
+        Arrays.fill(trie, -1);
+        outLength = new int[capacity];
+        outValue = new int[capacity];
+        int states = 1;
+        for (int n = 0; n < names.size(); n++) {
+            String name = names.get(n);
+            if (name.isEmpty())
+                continue;
+            int state = 0;
+            for (int i = 0; i < name.length(); i++) {
+                int slot = state * classes + classOf[fold(name.charAt(i))];
+                if (trie[slot] < 0)
+                    trie[slot] = states++;
+                state = trie[slot];
+            }
+            outLength[state] = name.length();
+            outValue[state] = values[n];
+        }
+
+        // Failure links, folded into a complete transition table breadth first
+        next = trie;
+        outLink = new int[capacity];
+        int[] fail = new int[capacity];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outLink[0] = -1;
+        for (int c = 0; c < classes; c++) {
+            int child = next[c];
+            if (child < 0) {
+                next[c] = 0;
+            } else {
+                fail[child] = 0;
+                outLink[child] = -1;
+                queue.add(child);
+            }
+        }
+        next[0] = 0; // Characters outside every name restart the search
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int c = 0; c < classes; c++) {
+                int slot = state * classes + c;
+                int child = next[slot];
+                int fallback = next[fail[state] * classes + c];
+                if (child < 0 || c == 0) {
+                    next[slot] = c == 0 ? 0 : fallback;
+                } else {
+                    fail[child] = fallback;
+                    outLink[child] = outLength[fallback] > 0 ? fallback : outLink[fallback];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    // Scans text and replaces the contents of out with the matches, in order
+    public void find(CharSequence text, Matches out) {
+        out.count = 0;
+        int ring = maxLength + 1;
+        if (out.pendingStart.length < ring) {
+            out.pendingStart = new int[ring];
+            out.pendingEnd = new int[ring];
+            out.pendingValue = new int[ring];
+        }
+        int[] pendingStart = out.pendingStart;
+        int[] pendingEnd = out.pendingEnd;
+        int[] pendingValue = out.pendingValue;
+        Arrays.fill(pendingStart, 0, ring, -1);
+
+        int length = text.length();
+        int state = 0;
+        int cursor = 0; // Next start position to settle
+        int lastEnd = 0; // Matches may not overlap
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            state = next[state * classes + (c < 128 ? classOf[c] : 0)];
+            int end = i + 1;
+            // Every name ending here, longest first; keep the longest per start position
+            for (int s = outLength[state] > 0 ? state : outLink[state]; s >= 0; s = outLink[s]) {
+                int start = end - outLength[s];
+                if (!isBoundary(text, start) || !isBoundary(text, end))
+                    continue;
+                int slot = start % ring;
+                pendingStart[slot] = start;
+                pendingEnd[slot] = end;
+                pendingValue[slot] = outValue[s];
+            }
+            // No name longer than maxLength, so starts this far back cannot grow any more
+            while (cursor + maxLength <= end) {
+                lastEnd = settle(cursor++, ring, lastEnd, out);
+            }
+        }
+        while (cursor < length) {
+            lastEnd = settle(cursor++, ring, lastEnd, out);
+        }
+    }
+
+    // Emits the longest match found at start, unless an earlier match covers it
+    private static int settle(int start, int ring, int lastEnd, Matches out) {
+        int slot = start % ring;
+        if (out.pendingStart[slot] != start)
+            return lastEnd;
+        out.pendingStart[slot] = -1;
+        if (start < lastEnd)
+            return lastEnd;
+        out.add(start, out.pendingEnd[slot], out.pendingValue[slot]);
+        return out.pendingEnd[slot];
+    }
+
+    private static boolean isBoundary(CharSequence text, int index) {
+        boolean before = index > 0 && isWordChar(text.charAt(index - 1));
+        boolean after = index < text.length() && isWordChar(text.charAt(index));
+        return before != after;
+    }
+
+    // Same word characters as \b in java.util.regex
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
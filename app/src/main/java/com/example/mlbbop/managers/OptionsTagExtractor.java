@@ -0,0 +1,91 @@
+package com.example.mlbbop.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Strips "[OPTIONS: a | b | c]" tags out of a response while it streams in.
+// Text that might be the start of a tag is held back until it is either confirmed (and dropped)
+// or ruled out (and released). Each complete tag is published as soon as its ']' arrives.
+// Like the old "\[OPTIONS:(.*?)\]" regex, a tag cannot span a line break.
+public class OptionsTagExtractor {
+    private static final String OPEN = "[OPTIONS:";
+    private static final char CLOSE = ']';
+    private static final char SEPARATOR = '|';
+
+    public interface Listener {
+        void onOptions(List<String> options);
+    }
+
+    private final Listener listener;
+    private final StringBuilder held = new StringBuilder(); // Raw text of a possible tag
+    private int openMatched = 0; // Chars of OPEN matched so far; OPEN.length() once inside a tag
+
+    public OptionsTagExtractor(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Appends the displayable part of chunk to out
+    public void feed(CharSequence chunk, StringBuilder out) {
+        for (int i = 0, n = chunk.length(); i < n; i++) {
+            accept(chunk.charAt(i), out);
+        }
+    }
+
+    // End of response: an unterminated tag was never a tag, so release it as text
+    public void finish(StringBuilder out) {
+        out.append(held);
+        held.setLength(0);
+        openMatched = 0;
+    }
+
+    public void reset() {
+        held.setLength(0);
+        openMatched = 0;
+    }
+
+    private void accept(char c, StringBuilder out) {
+        if (openMatched == OPEN.length()) {
+            // Inside a tag body
+            if (c == CLOSE) {
+                publish();
+                held.setLength(0);
+                openMatched = 0;
+            } else if (c == '\n') {
+                held.append(c);
+                finish(out);
+            } else {
+                held.append(c);
+            }
+            return;
+        }
+
+        if (c == OPEN.charAt(openMatched)) {
+            held.append(c);
+            openMatched++;
+            return;
+        }
+
+        if (openMatched > 0) {
+            // Not a tag after all; the mismatching char may itself start a new one
+            finish(out);
+            accept(c, out);
+            return;
+        }
+        out.append(c);
+    }
+
+    private void publish() {
+        List<String> options = new ArrayList<>();
+        int start = OPEN.length();
+        int end = held.length();
+        for (int i = start; i <= end; i++) {
+            if (i == end || held.charAt(i) == SEPARATOR) {
+                String option = held.substring(start, i).trim();
+                if (!option.isEmpty())
+                    options.add(option);
+                start = i + 1;
+            }
+        }
+        listener.onOptions(options);
+    }
+}
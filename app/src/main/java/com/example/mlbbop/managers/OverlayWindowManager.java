@@ -160,11 +160,16 @@ public class OverlayWindowManager {
                 overlayHandle.setVisibility(View.GONE);
             }
             isExpanded = true;
+            ModelClientRegistry.prewarm(context); // The user is likely about to send
         } catch (Exception e) {
             Log.e(TAG, "Error showing expanded view", e);
         }
     }
 
+    public boolean isExpanded() {
+        return isExpanded;
+    }
+
     public void hideExpandedView() {
         if (!isExpanded)
             return;
@@ -245,6 +250,18 @@ public class OverlayWindowManager {
         android.widget.RadioButton rbKey1 = view.findViewById(R.id.rb_key_1);
         android.widget.RadioButton rbKey2 = view.findViewById(R.id.rb_key_2);
         android.widget.RadioButton rbKey3 = view.findViewById(R.id.rb_key_3);
+        android.widget.RadioButton rbResNative = view.findViewById(R.id.rb_res_native);
+        android.widget.RadioButton rbRes1080 = view.findViewById(R.id.rb_res_1080);
+        android.widget.RadioButton rbRes720 = view.findViewById(R.id.rb_res_720);
+        android.widget.RadioButton rbResCustom = view.findViewById(R.id.rb_res_custom);
+        com.google.android.material.textfield.TextInputEditText etCaptureScale = view.findViewById(R.id.et_capture_scale);
+        android.widget.CheckBox cbAutoCapture = view.findViewById(R.id.cb_auto_capture);
+        com.google.android.material.textfield.TextInputEditText etAutoCaptureFps = view.findViewById(R.id.et_auto_capture_fps);
+        com.google.android.material.textfield.TextInputEditText etSceneThreshold = view.findViewById(R.id.et_scene_threshold);
+        android.widget.CheckBox cbStructuredReplies = view.findViewById(R.id.cb_structured_replies);
+        android.widget.CheckBox cbHedgedRequests = view.findViewById(R.id.cb_hedged_requests);
+        com.google.android.material.textfield.TextInputEditText etHedgePercentile = view.findViewById(R.id.et_hedge_percentile);
+        com.google.android.material.textfield.TextInputEditText etHedgeMaxRate = view.findViewById(R.id.et_hedge_max_rate);
         android.widget.TextView tvStatus = view.findViewById(R.id.tv_settings_status);
         View btnSave = view.findViewById(R.id.btn_save_settings);
         View btnHealthCheck = view.findViewById(R.id.btn_check_health);
@@ -262,6 +279,24 @@ public class OverlayWindowManager {
         else
             rbKey1.setChecked(true);
 
+        String resolution = SettingsManager.getCaptureResolution(context);
+        if (SettingsManager.RESOLUTION_NATIVE.equals(resolution))
+            rbResNative.setChecked(true);
+        else if (SettingsManager.RESOLUTION_720P.equals(resolution))
+            rbRes720.setChecked(true);
+        else if (SettingsManager.RESOLUTION_CUSTOM.equals(resolution))
+            rbResCustom.setChecked(true);
+        else
+            rbRes1080.setChecked(true);
+        etCaptureScale.setText(String.valueOf(SettingsManager.getCaptureCustomScale(context)));
+        cbAutoCapture.setChecked(SettingsManager.isAutoCaptureEnabled(context));
+        etAutoCaptureFps.setText(String.valueOf(SettingsManager.getAutoCaptureFps(context)));
+        etSceneThreshold.setText(String.valueOf(SettingsManager.getSceneChangeThreshold(context)));
+        cbStructuredReplies.setChecked(SettingsManager.isStructuredResponseEnabled(context));
+        cbHedgedRequests.setChecked(SettingsManager.isHedgingEnabled(context));
+        etHedgePercentile.setText(String.valueOf(SettingsManager.getHedgePercentile(context)));
+        etHedgeMaxRate.setText(String.valueOf(SettingsManager.getHedgeMaxRate(context)));
+
         // Make edit texts focusable in overlay
         View.OnTouchListener focusListener = (v, event) -> {
             if (event.getAction() == MotionEvent.ACTION_DOWN) {
@@ -273,6 +308,11 @@ public class OverlayWindowManager {
         etApiKey2.setOnTouchListener(focusListener);
         etApiKey3.setOnTouchListener(focusListener);
         etModelName.setOnTouchListener(focusListener);
+        etCaptureScale.setOnTouchListener(focusListener);
+        etAutoCaptureFps.setOnTouchListener(focusListener);
+        etSceneThreshold.setOnTouchListener(focusListener);
+        etHedgePercentile.setOnTouchListener(focusListener);
+        etHedgeMaxRate.setOnTouchListener(focusListener);
 
         btnSave.setOnClickListener(v -> {
             setFocusable(false); // Hide keyboard
@@ -296,6 +336,53 @@ public class OverlayWindowManager {
                 newIndex = 3;
             SettingsManager.saveActiveKeyIndex(context, newIndex);
 
+            // Picked up by ScreenCaptureManager on the next capture
+            String newResolution = SettingsManager.RESOLUTION_1080P;
+            if (rbResNative.isChecked())
+                newResolution = SettingsManager.RESOLUTION_NATIVE;
+            else if (rbRes720.isChecked())
+                newResolution = SettingsManager.RESOLUTION_720P;
+            else if (rbResCustom.isChecked())
+                newResolution = SettingsManager.RESOLUTION_CUSTOM;
+            SettingsManager.saveCaptureResolution(context, newResolution);
+
+            try {
+                float scale = Float.parseFloat(etCaptureScale.getText().toString().trim());
+                SettingsManager.saveCaptureCustomScale(context, Math.max(0.1f, Math.min(1f, scale)));
+            } catch (NumberFormatException ignored) {
+                // Keep the previous scale
+            }
+            SettingsManager.saveAutoCaptureEnabled(context, cbAutoCapture.isChecked());
+            // Applied when the overlay closes
+            try {
+                float fps = Float.parseFloat(etAutoCaptureFps.getText().toString().trim());
+                SettingsManager.saveAutoCaptureFps(context, Math.max(0.1f, Math.min(10f, fps)));
+            } catch (NumberFormatException ignored) {
+                // Keep the previous rate
+            }
+            try {
+                int threshold = Integer.parseInt(etSceneThreshold.getText().toString().trim());
+                SettingsManager.saveSceneChangeThreshold(context, Math.max(1, Math.min(32, threshold)));
+            } catch (NumberFormatException ignored) {
+                // Keep the previous threshold
+            }
+            // Read when the next analysis starts
+            SettingsManager.saveStructuredResponseEnabled(context, cbStructuredReplies.isChecked());
+            // Read with every request
+            SettingsManager.saveHedgingEnabled(context, cbHedgedRequests.isChecked());
+            try {
+                float percentile = Float.parseFloat(etHedgePercentile.getText().toString().trim());
+                SettingsManager.saveHedgePercentile(context, Math.max(50f, Math.min(99f, percentile)));
+            } catch (NumberFormatException ignored) {
+                // Keep the previous percentile
+            }
+            try {
+                float maxRate = Float.parseFloat(etHedgeMaxRate.getText().toString().trim());
+                SettingsManager.saveHedgeMaxRate(context, Math.max(0f, Math.min(1f, maxRate)));
+            } catch (NumberFormatException ignored) {
+                // Keep the previous rate
+            }
+
             tvStatus.setText("Settings saved!");
             Toast.makeText(context, "Settings Saved!", Toast.LENGTH_SHORT).show();
         });
@@ -321,10 +408,8 @@ public class OverlayWindowManager {
                 return;
             }
 
-            com.google.ai.client.generativeai.GenerativeModel gm = new com.google.ai.client.generativeai.GenerativeModel(
-                    model, activeKey);
-            com.google.ai.client.generativeai.java.GenerativeModelFutures modelFutures = com.google.ai.client.generativeai.java.GenerativeModelFutures
-                    .from(gm);
+            com.google.ai.client.generativeai.java.GenerativeModelFutures modelFutures = ModelClientRegistry
+                    .get(activeKey, model);
 
             com.google.ai.client.generativeai.type.Content content = new com.google.ai.client.generativeai.type.Content.Builder()
                     .addText("Ping")
@@ -350,7 +435,7 @@ public class OverlayWindowManager {
                                 Toast.makeText(context, "API Error", Toast.LENGTH_LONG).show();
                             });
                         }
-                    }, java.util.concurrent.Executors.newSingleThreadExecutor());
+                    }, ModelClientRegistry.callbackExecutor());
         });
     }
 
@@ -465,7 +550,62 @@ public class OverlayWindowManager {
         }
     }
 
+    // Start of the message currently being streamed in cachedChatHistory, or -1
+    private int streamingStart = -1;
+
+    public void beginStreamingMessage(String prefix) {
+        String spacer = cachedChatHistory.isEmpty() ? "" : "\n\n";
+        streamingStart = cachedChatHistory.length() + spacer.length();
+        cachedChatHistory = cachedChatHistory + spacer + prefix;
+        android.widget.TextView tvChat = overlayExpanded != null
+                ? overlayExpanded.findViewById(R.id.tv_chat_response)
+                : null;
+        if (tvChat != null) {
+            tvChat.setText(TextWithImageHelper.getSpannedText(context, cachedChatHistory));
+            scrollChatToBottom(tvChat);
+        }
+    }
+
+    // Appended as plain text; icons are resolved once in finishStreamingMessage
+    public void appendStreamingChunk(String chunk) {
+        if (streamingStart < 0 || chunk.isEmpty())
+            return;
+        cachedChatHistory = cachedChatHistory + chunk;
+        android.widget.TextView tvChat = overlayExpanded != null
+                ? overlayExpanded.findViewById(R.id.tv_chat_response)
+                : null;
+        if (tvChat != null) {
+            tvChat.append(chunk);
+            scrollChatToBottom(tvChat);
+        }
+    }
+
+    // Replaces the streamed text with its final form and renders hero/item icons
+    public void finishStreamingMessage(String message) {
+        if (streamingStart < 0) {
+            appendChatMessage(message);
+            return;
+        }
+        cachedChatHistory = cachedChatHistory.substring(0, streamingStart) + message;
+        streamingStart = -1;
+        android.widget.TextView tvChat = overlayExpanded != null
+                ? overlayExpanded.findViewById(R.id.tv_chat_response)
+                : null;
+        if (tvChat != null) {
+            tvChat.setText(TextWithImageHelper.getSpannedText(context, cachedChatHistory));
+            scrollChatToBottom(tvChat);
+        }
+    }
+
+    private void scrollChatToBottom(android.widget.TextView tvChat) {
+        View scrollView = (View) tvChat.getParent();
+        if (scrollView instanceof android.widget.ScrollView) {
+            scrollView.post(() -> ((android.widget.ScrollView) scrollView).fullScroll(View.FOCUS_DOWN));
+        }
+    }
+
     public void resetDataCache() {
+        streamingStart = -1;
         cachedChatHistory = "";
 
     }
@@ -527,6 +667,47 @@ public class OverlayWindowManager {
             overlayHandle.setVisibility(View.GONE);
     }
 
+    public interface HiddenCallback {
+        // frameTimeNanos is on the System.nanoTime() clock, like Image.getTimestamp()
+        void onOverlayHidden(long frameTimeNanos);
+    }
+
+    // Frames to wait after hiding: one for our traversal, one for the window manager to apply the
+    // hide, one for the compositor to latch a frame without us.
+    private static final int HIDE_SETTLE_FRAMES = 3;
+
+    // Hides the overlay and reports the first vsync at which it can no longer be in a composited
+    // frame. Falls back to a plain timeout if Choreographer never calls back.
+    public void hideForCapture(long fallbackMs, HiddenCallback callback) {
+        setInvisible();
+
+        java.util.concurrent.atomic.AtomicBoolean delivered = new java.util.concurrent.atomic.AtomicBoolean();
+        android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
+        Runnable fallback = () -> {
+            if (delivered.compareAndSet(false, true)) {
+                Log.w(TAG, "No frame signal after hiding overlay, using fallback");
+                callback.onOverlayHidden(System.nanoTime());
+            }
+        };
+        handler.postDelayed(fallback, fallbackMs);
+
+        android.view.Choreographer.getInstance().postFrameCallback(new android.view.Choreographer.FrameCallback() {
+            private int frames = 0;
+
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (++frames < HIDE_SETTLE_FRAMES) {
+                    android.view.Choreographer.getInstance().postFrameCallback(this);
+                    return;
+                }
+                if (delivered.compareAndSet(false, true)) {
+                    handler.removeCallbacks(fallback);
+                    callback.onOverlayHidden(frameTimeNanos);
+                }
+            }
+        });
+    }
+
     public void setVisible() {
         if (overlayExpanded != null && isExpanded)
             overlayExpanded.setVisibility(View.VISIBLE);
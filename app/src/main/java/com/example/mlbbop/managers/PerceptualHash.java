@@ -0,0 +1,114 @@
+package com.example.mlbbop.managers;
+
+import java.nio.ByteBuffer;
+
+// 64-bit difference hash (dHash) computed on a 9x8 luma grid
+public final class PerceptualHash {
+    public static final int GRID_WIDTH = 9;
+    public static final int GRID_HEIGHT = 8;
+    public static final int GRID_SIZE = GRID_WIDTH * GRID_HEIGHT;
+
+    // Point samples per grid cell along each axis; 4x4 is plenty to smooth out UI noise
+    private static final int SAMPLES = 4;
+    private static final int SLOT_ROTATION = 7; // Bits between slots in slotsHash, coprime to 64
+    private static final int FRAME_ROTATION = 32; // Offset of the whole-frame hash in cacheKey, no slot's
+
+    private PerceptualHash() {
+    }
+
+    // Samples an RGBA_8888 buffer in place. luma must hold GRID_SIZE entries and is overwritten,
+    // so the caller can reuse it and nothing is allocated per frame.
+    public static long dHashRgba(ByteBuffer buffer, int width, int height, int rowStride, int pixelStride,
+            int[] luma) {
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            for (int gx = 0; gx < GRID_WIDTH; gx++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    int y = ((gy * SAMPLES + sy) * 2 + 1) * height / (GRID_HEIGHT * SAMPLES * 2);
+                    int rowStart = y * rowStride;
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        int x = ((gx * SAMPLES + sx) * 2 + 1) * width / (GRID_WIDTH * SAMPLES * 2);
+                        int i = rowStart + x * pixelStride;
+                        int r = buffer.get(i) & 0xff;
+                        int g = buffer.get(i + 1) & 0xff;
+                        int b = buffer.get(i + 2) & 0xff;
+                        sum += (r * 77 + g * 150 + b * 29) >> 8;
+                    }
+                }
+                luma[gy * GRID_WIDTH + gx] = sum;
+            }
+        }
+        return dHash(luma);
+    }
+
+    // Same sampling as dHashRgba, over packed ARGB pixels (Bitmap.getPixels layout)
+    public static long dHashArgb(int[] pixels, int width, int height, int[] luma) {
+        return dHashArgb(pixels, width, 0, 0, width, height, luma);
+    }
+
+    // dHashArgb of the w x h area at (left, top) of an image stride pixels wide
+    public static long dHashArgb(int[] pixels, int stride, int left, int top, int w, int h, int[] luma) {
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            for (int gx = 0; gx < GRID_WIDTH; gx++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    int y = top + ((gy * SAMPLES + sy) * 2 + 1) * h / (GRID_HEIGHT * SAMPLES * 2);
+                    int rowStart = y * stride + left;
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        int x = ((gx * SAMPLES + sx) * 2 + 1) * w / (GRID_WIDTH * SAMPLES * 2);
+                        int argb = pixels[rowStart + x];
+                        int r = (argb >> 16) & 0xff;
+                        int g = (argb >> 8) & 0xff;
+                        int b = argb & 0xff;
+                        sum += (r * 77 + g * 150 + b * 29) >> 8;
+                    }
+                }
+                luma[gy * GRID_WIDTH + gx] = sum;
+            }
+        }
+        return dHash(luma);
+    }
+
+    // Cache key for a draft screen: the dHash of each player portrait, so the rest of the screen
+    // (timers, chat, the map behind) cannot make two different drafts look alike. Each slot's hash
+    // is rotated to its own offset before they are XORed, so a bit of noise in one portrait moves
+    // the key by a bit, while a different hero in any slot moves it by tens of bits.
+    public static long slotsHash(int[] pixels, int width, int height, SlotLayout layout, int[] luma) {
+        int size = layout.size(height);
+        long hash = 0;
+        for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+            long slotHash = dHashArgb(pixels, width, layout.left(slot, width, height), layout.top(slot, height),
+                    size, size, luma);
+            hash ^= Long.rotateLeft(slotHash, slot * SLOT_ROTATION);
+        }
+        return hash;
+    }
+
+    // Reply cache key: slotsHash with the dHash of the whole frame mixed in. The slots alone only say
+    // that the portrait areas look alike; any other screen with similar pixels there (the loading
+    // screen, a results page, a stretch of map) would hit a cached draft analysis. The whole frame
+    // barely moves between captures of one draft, so recapture noise still stays within a few bits.
+    public static long cacheKey(int[] pixels, int width, int height, SlotLayout layout, int[] luma) {
+        long slots = slotsHash(pixels, width, height, layout, luma);
+        return slots ^ Long.rotateLeft(dHashArgb(pixels, width, height, luma), FRAME_ROTATION);
+    }
+
+    // One bit per horizontal neighbour pair: set when luminance increases to the right
+    public static long dHash(int[] luma) {
+        long hash = 0;
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            int row = gy * GRID_WIDTH;
+            for (int gx = 0; gx < GRID_WIDTH - 1; gx++) {
+                hash <<= 1;
+                if (luma[row + gx + 1] > luma[row + gx]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.mlbbop.managers;
+
+// Identifies heroes by their portrait, without a network call.
+// Every bundled portrait is reduced to a GRID x GRID grid of mean colours (a FEATURES-long
+// vector). On the screen, a square of the slot's size is reduced the same way at each offset of
+// a small search window around the slot, and the portrait with the smallest sum of absolute
+// differences wins. Pixels are packed ARGB ints, as returned by Bitmap.getPixels.
+public class PortraitMatcher {
+    static final int GRID = 8;
+    static final int FEATURES = GRID * GRID * 3;
+    private static final int SAMPLES = 4; // Point samples per cell along each axis
+    private static final int STEPS = 16; // Search offsets are size / STEPS apart
+    private static final int MAX_MEAN_DIFF = 24; // Per colour channel, of 255
+    private static final float MIN_MARGIN = 1.3f; // Runner-up distance over best distance
+
+    public static final class SlotMatch {
+        public final int hero; // Index into the names given to the constructor
+        public final int distance;
+        public final int runnerUpDistance; // Best distance of any other hero
+        public final boolean confident;
+
+        SlotMatch(int hero, int distance, int runnerUpDistance) {
+            this.hero = hero;
+            this.distance = distance;
+            this.runnerUpDistance = runnerUpDistance;
+            this.confident = distance <= MAX_MEAN_DIFF * FEATURES
+                    && runnerUpDistance >= MIN_MARGIN * distance;
+        }
+    }
+
+    private final String[] names;
+    private final int[] features; // FEATURES per portrait, back to back
+
+    // portraits[i] holds widths[i] x heights[i] ARGB pixels of the hero names[i]
+    public PortraitMatcher(String[] names, int[][] portraits, int[] widths, int[] heights) {
+        this.names = names.clone();
+        features = new int[names.length * FEATURES];
+        for (int i = 0; i < names.length; i++) {
+            extract(portraits[i], widths[i], 0, 0, widths[i], heights[i], features, i * FEATURES);
+        }
+    }
+
+    public int heroCount() {
+        return names.length;
+    }
+
+    public String name(int hero) {
+        return names[hero];
+    }
+
+    // Margin searched around each slot; covers layouts that are a little off
+    public static int searchMargin(int size) {
+        return size / 8;
+    }
+
+    // Slides a size x size square over the window (width x height pixels) and returns the best
+    // portrait match. Thread-safe.
+    public SlotMatch match(int[] window, int width, int height, int size) {
+        int[] candidate = new int[FEATURES];
+        int step = Math.max(1, size / STEPS);
+        int best = Integer.MAX_VALUE;
+        int runnerUp = Integer.MAX_VALUE;
+        int bestHero = -1;
+        for (int y = 0; y + size <= height; y += step) {
+            for (int x = 0; x + size <= width; x += step) {
+                extract(window, width, x, y, size, size, candidate, 0);
+                for (int hero = 0; hero < names.length; hero++) {
+                    // Anything above the runner-up cannot change the outcome
+                    int d = distance(candidate, hero * FEATURES, runnerUp);
+                    if (hero == bestHero) {
+                        best = Math.min(best, d);
+                    } else if (d < best) {
+                        runnerUp = best;
+                        best = d;
+                        bestHero = hero;
+                    } else if (d < runnerUp) {
+                        runnerUp = d;
+                    }
+                }
+            }
+        }
+        return new SlotMatch(bestHero, best, runnerUp);
+    }
+
+    // Finds every slot of the layout on a full screen
+    public TeamRoster recognize(int[] screen, int width, int height, SlotLayout layout) {
+        String[] heroes = new String[TeamRoster.SLOTS];
+        boolean[] confident = new boolean[TeamRoster.SLOTS];
+        int size = layout.size(height);
+        int[] bounds = new int[4];
+        for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+            layout.window(slot, width, height, searchMargin(size), bounds);
+            int windowWidth = bounds[2] - bounds[0];
+            int windowHeight = bounds[3] - bounds[1];
+            int[] window = new int[windowWidth * windowHeight];
+            for (int row = 0; row < windowHeight; row++) {
+                System.arraycopy(screen, (bounds[1] + row) * width + bounds[0], window, row * windowWidth,
+                        windowWidth);
+            }
+            SlotMatch match = match(window, windowWidth, windowHeight, size);
+            if (match.hero >= 0) {
+                heroes[slot] = names[match.hero];
+                confident[slot] = match.confident;
+            }
+        }
+        return new TeamRoster(heroes, confident);
+    }
+
+    private int distance(int[] candidate, int offset, int limit) {
+        int sum = 0;
+        for (int i = 0; i < FEATURES; i++) {
+            sum += Math.abs(candidate[i] - features[offset + i]);
+            // Check once per grid row (GRID cells of 3 channels), the loop stays cheap
+            if (i % (GRID * 3) == GRID * 3 - 1 && sum >= limit)
+                return sum;
+        }
+        return sum;
+    }
+
+    // Mean colour of each grid cell of the w x h area at (left, top), from SAMPLES x SAMPLES
+    // point samples per cell
+    private static void extract(int[] pixels, int stride, int left, int top, int w, int h, int[] out,
+            int offset) {
+        int n = SAMPLES * SAMPLES;
+        for (int gy = 0; gy < GRID; gy++) {
+            for (int gx = 0; gx < GRID; gx++) {
+                int r = 0, g = 0, b = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    int y = top + ((gy * SAMPLES + sy) * 2 + 1) * h / (GRID * SAMPLES * 2);
+                    int rowStart = y * stride + left;
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        int argb = pixels[rowStart + ((gx * SAMPLES + sx) * 2 + 1) * w / (GRID * SAMPLES * 2)];
+                        r += (argb >> 16) & 0xff;
+                        g += (argb >> 8) & 0xff;
+                        b += argb & 0xff;
+                    }
+                }
+                int cell = offset + (gy * GRID + gx) * 3;
+                out[cell] = r / n;
+                out[cell + 1] = g / n;
+                out[cell + 2] = b / n;
+            }
+        }
+    }
+}
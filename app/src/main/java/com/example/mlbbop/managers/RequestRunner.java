@@ -0,0 +1,462 @@
+package com.example.mlbbop.managers;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+// Answers one prompt over possibly several attempts: a deadline per attempt that is pushed back
+// while a stream keeps producing, a move to another key after a 429, exponential backoff for
+// other retryable errors, an optional hedge on a second key, and a reply from the disk cache when
+// the API cannot answer. The model calls themselves go through a Transport, so this can run
+// against a fake. Runs its own work on executor; the transport may call back on any thread.
+public class RequestRunner<P> {
+    private static final String TAG = "RequestRunner";
+
+    // Sends prompts to the model
+    public interface Transport<P> {
+        // Sends prompt with the given key. A streaming transport reports each chunk to onChunk;
+        // every call ends with exactly one of onComplete (the full text) or onError.
+        Call send(int key, P prompt, Listener listener);
+    }
+
+    public interface Call {
+        void cancel();
+    }
+
+    public interface Listener {
+        void onChunk(String text);
+
+        void onComplete(String text);
+
+        void onError(Throwable t);
+    }
+
+    public interface Scheduler {
+        // Runs task on the runner's executor after delayMs
+        void schedule(Runnable task, long delayMs);
+    }
+
+    // Outcome of one request. onReply and onError are final, and only one of them is called.
+    public interface Callback {
+        void onRequestSent();
+
+        void onFirstChunk();
+
+        // Streaming transports only
+        void onPartialResponse(String chunk);
+
+        // offline: a cached reply shown because the API could not answer
+        void onReply(String text, boolean offline);
+
+        void onError(Throwable t);
+    }
+
+    // Identifies a reply for the caches; question is empty for the first reply to an image
+    public static final class ReplyKey {
+        public final String variant;
+        public final long imageHash;
+        public final String question;
+
+        public ReplyKey(String variant, long imageHash, String question) {
+            this.variant = variant;
+            this.imageHash = imageHash;
+            this.question = question;
+        }
+    }
+
+    private final Transport<P> transport;
+    private final Executor executor;
+    private final Scheduler scheduler;
+    private final CircuitBreaker.Clock clock;
+    private final KeyScheduler keyScheduler;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgePolicy hedgePolicy;
+    private final DiskResponseCache diskCache; // Offline fallback, may be null
+    private final List<Class<? extends Throwable>> retryable;
+    private final List<Class<? extends Throwable>> rateLimited;
+    private final long requestTimeoutMs;
+    private final int maxRetries;
+    private final long retryBaseDelayMs;
+
+    // retryable and rateLimited: exception types, matched anywhere in the cause chain. Missed
+    // deadlines are always retryable.
+    public RequestRunner(Transport<P> transport, Executor executor, Scheduler scheduler, CircuitBreaker.Clock clock,
+            KeyScheduler keyScheduler, CircuitBreaker circuitBreaker, HedgePolicy hedgePolicy,
+            DiskResponseCache diskCache, List<Class<? extends Throwable>> retryable,
+            List<Class<? extends Throwable>> rateLimited, long requestTimeoutMs, int maxRetries,
+            long retryBaseDelayMs) {
+        this.transport = transport;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.keyScheduler = keyScheduler;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgePolicy = hedgePolicy;
+        this.diskCache = diskCache;
+        this.retryable = new ArrayList<>(retryable);
+        this.rateLimited = new ArrayList<>(rateLimited);
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.retryBaseDelayMs = retryBaseDelayMs;
+    }
+
+    // replyKey: where the offline fallback looks, null for none. hedging: whether a slow attempt
+    // may be raced on another key. Call on executor.
+    public void send(P prompt, ReplyKey replyKey, boolean hedging, Callback callback) {
+        Request request = new Request(prompt, replyKey, hedging, callback);
+        if (!circuitBreaker.allowRequest()) {
+            LatencyTracer.increment("BREAKER.REJECTED");
+            fallback(request, new CircuitBreaker.OpenException(circuitBreaker.retryInMs()));
+            return;
+        }
+        if (hedging)
+            hedgePolicy.onRequest();
+        attempt(request);
+    }
+
+    // One prompt to answer, possibly over several attempts on different keys. With hedging, two
+    // attempts can run at once: the first to produce output wins and the other is cancelled.
+    private final class Request {
+        final P prompt;
+        final ReplyKey replyKey;
+        final boolean hedging;
+        final Callback callback;
+        int keyRotations = 0; // Retries on another key after a 429
+        int retries = 0; // Backoff retries after a retryable error
+        boolean sent = false;
+        boolean hedged = false;
+        private final List<Attempt> running = new ArrayList<>();
+        private Attempt winner;
+
+        Request(P prompt, ReplyKey replyKey, boolean hedging, Callback callback) {
+            this.prompt = prompt;
+            this.replyKey = replyKey;
+            this.hedging = hedging;
+            this.callback = callback;
+        }
+
+        synchronized void add(Attempt attempt) {
+            running.add(attempt);
+        }
+
+        synchronized boolean isSettled() {
+            return winner != null;
+        }
+
+        synchronized boolean isWinner(Attempt attempt) {
+            return winner == attempt;
+        }
+
+        // True if the attempt may deliver: it is the first to claim the request, or already won
+        boolean claim(Attempt attempt) {
+            List<Attempt> losers;
+            synchronized (this) {
+                if (winner != null)
+                    return winner == attempt;
+                winner = attempt;
+                losers = new ArrayList<>(running);
+                losers.remove(attempt);
+                running.clear();
+                running.add(attempt);
+            }
+            for (Attempt loser : losers) {
+                loser.cancel();
+            }
+            return true;
+        }
+
+        // Drops a failed attempt; true if another one is still working on the request
+        synchronized boolean othersRunning(Attempt attempt) {
+            running.remove(attempt);
+            return !running.isEmpty();
+        }
+    }
+
+    // A single send on one key
+    private final class Attempt implements Listener {
+        final Request request;
+        final int key;
+        final boolean hedge;
+        final long startMs = clock.nowMs();
+        private volatile long lastChunkMs = startMs;
+        private Call call;
+        private boolean cancelled = false;
+        private boolean finished = false;
+        private boolean receivedFirst = false; // Transport thread only
+        private long firstByteMs;
+
+        Attempt(Request request, int key, boolean hedge) {
+            this.request = request;
+            this.key = key;
+            this.hedge = hedge;
+        }
+
+        long elapsedMs() {
+            return clock.nowMs() - startMs;
+        }
+
+        // Time since the last chunk, or since the start before the first one
+        long idleMs() {
+            return clock.nowMs() - lastChunkMs;
+        }
+
+        synchronized void setCall(Call call) {
+            this.call = call;
+            if (cancelled)
+                call.cancel();
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized boolean isFinished() {
+            return finished;
+        }
+
+        // The response completed or failed; false if the attempt was cancelled first, and the
+        // outcome should be ignored
+        synchronized boolean finish() {
+            if (cancelled)
+                return false;
+            finished = true;
+            return true;
+        }
+
+        // Lost the race or timed out: stop it and hand its key back. False if it had already
+        // finished or been cancelled.
+        boolean cancel() {
+            synchronized (this) {
+                if (cancelled || finished)
+                    return false;
+                cancelled = true;
+                if (call != null)
+                    call.cancel();
+            }
+            keyScheduler.onFailure(key);
+            return true;
+        }
+
+        // Chunks are only forwarded once this attempt has won the request
+        @Override
+        public void onChunk(String text) {
+            if (isCancelled())
+                return;
+            lastChunkMs = clock.nowMs();
+            if (!receivedFirst) {
+                if (!request.claim(this))
+                    return;
+                receivedFirst = true;
+                firstByteMs = elapsedMs();
+                onFirstByte(request, this);
+            }
+            if (text != null && !text.isEmpty())
+                request.callback.onPartialResponse(text);
+        }
+
+        @Override
+        public void onComplete(String text) {
+            if (!finish())
+                return; // Stalled and cut off, or lost the race
+            if (!receivedFirst) {
+                if (!request.claim(this))
+                    return; // Finished after the other attempt won
+                firstByteMs = elapsedMs();
+                onFirstByte(request, this);
+            }
+            keyScheduler.onSuccess(key, firstByteMs);
+            request.callback.onReply(text, false);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            fail(request, this, t, receivedFirst);
+        }
+    }
+
+    private void attempt(Request request) {
+        start(request, new Attempt(request, keyScheduler.acquire(), false));
+    }
+
+    private void start(Request request, Attempt attempt) {
+        request.add(attempt);
+        try {
+            attempt.setCall(transport.send(attempt.key, request.prompt, attempt));
+        } catch (RuntimeException e) {
+            attempt.onError(e);
+            return;
+        }
+
+        if (!request.sent) {
+            request.sent = true;
+            LatencyTracer.mark(LatencyTracer.Stage.REQUEST_SENT);
+            request.callback.onRequestSent();
+        }
+        scheduleDeadline(request, attempt, requestTimeoutMs);
+        if (request.hedging && !request.hedged)
+            scheduler.schedule(() -> maybeHedge(request, attempt), hedgePolicy.delayMs());
+    }
+
+    // No first byte yet from the attempt: race a duplicate on another key, if one is usable
+    private void maybeHedge(Request request, Attempt slow) {
+        if (request.hedged || request.isSettled() || slow.isCancelled())
+            return;
+        int key = keyScheduler.acquireExcept(slow.key);
+        if (key < 0)
+            return;
+        if (!hedgePolicy.tryHedge()) {
+            keyScheduler.onFailure(key); // Hands the reservation back
+            return;
+        }
+        request.hedged = true;
+        LatencyTracer.increment("HEDGE.FIRED");
+        Log.d(TAG, "Hedging request after " + slow.elapsedMs() + " ms on key " + key);
+        start(request, new Attempt(request, key, true));
+    }
+
+    private void scheduleDeadline(Request request, Attempt attempt, long delayMs) {
+        scheduler.schedule(() -> onDeadline(request, attempt), delayMs);
+    }
+
+    // Nothing from the attempt for requestTimeoutMs: before the first byte it is abandoned as a
+    // retryable failure. A stream that goes quiet after its first chunk is cut off and reported as
+    // an error, since part of the reply is already on screen.
+    private void onDeadline(Request request, Attempt attempt) {
+        if (attempt.isCancelled() || attempt.isFinished())
+            return;
+        boolean won = request.isWinner(attempt);
+        if (request.isSettled() && !won)
+            return; // Lost the race; cancelled by the winner
+        long idleMs = attempt.idleMs();
+        if (idleMs < requestTimeoutMs) {
+            // A chunk arrived since this was scheduled; check again when the stream could next time out
+            scheduleDeadline(request, attempt, requestTimeoutMs - idleMs);
+            return;
+        }
+        if (!attempt.cancel()) // Also releases the key
+            return; // Finished meanwhile
+        if (won) {
+            Log.w(TAG, "Stream from key " + attempt.key + " stalled for " + idleMs + " ms");
+            circuitBreaker.onFailure();
+            request.callback.onError(new TimeoutException("Gemini stopped responding"));
+            return;
+        }
+        Log.w(TAG, "No response from key " + attempt.key + " after " + attempt.elapsedMs() + " ms");
+        afterFailure(request, attempt, new TimeoutException("Gemini did not respond in time"), false, false);
+    }
+
+    // Called once per request, by the winning attempt
+    private void onFirstByte(Request request, Attempt attempt) {
+        circuitBreaker.onSuccess();
+        hedgePolicy.recordFirstByte(attempt.elapsedMs());
+        if (attempt.hedge) {
+            hedgePolicy.onHedgeWon();
+            LatencyTracer.increment("HEDGE.WON");
+        }
+        LatencyTracer.mark(LatencyTracer.Stage.FIRST_BYTE);
+        request.callback.onFirstChunk();
+    }
+
+    private void fail(Request request, Attempt attempt, Throwable t, boolean partialDelivered) {
+        if (!attempt.finish())
+            return; // Lost a hedge race or timed out; already handled
+        boolean limited = isRateLimited(t);
+        if (limited) {
+            keyScheduler.onRateLimited(attempt.key);
+        } else {
+            keyScheduler.onFailure(attempt.key);
+        }
+        afterFailure(request, attempt, t, partialDelivered, limited);
+    }
+
+    // A rate-limited attempt moves straight to another key; other retryable errors are retried
+    // after an exponential backoff. Nothing is retried once part of the reply was shown, and
+    // while a hedge is still running the failure is left to the other attempt.
+    private void afterFailure(Request request, Attempt attempt, Throwable t, boolean partialDelivered,
+            boolean limited) {
+        if (limited) {
+            circuitBreaker.onIgnored(); // 429s are per key, the scheduler handles those
+        } else {
+            circuitBreaker.onFailure();
+        }
+        if (request.othersRunning(attempt))
+            return;
+
+        if (!partialDelivered) {
+            if (limited && request.keyRotations < keyScheduler.keyCount() - 1
+                    && keyScheduler.hasHealthyKeyBesides(attempt.key)) {
+                request.keyRotations++;
+                Log.w(TAG, "Key " + attempt.key + " is rate limited, retrying on another key");
+                executor.execute(() -> attempt(request));
+                return;
+            }
+            if ((limited || isRetryable(t)) && request.retries < maxRetries) {
+                long delay = retryBaseDelayMs << request.retries;
+                delay += (long) (Math.random() * delay / 2); // Jitter, so retries do not line up
+                request.retries++;
+                LatencyTracer.increment("RETRY");
+                Log.w(TAG, "Retrying in " + delay + " ms after: " + t);
+                scheduler.schedule(() -> attempt(request), delay);
+                return;
+            }
+        }
+        Log.e(TAG, "Gemini Error", t);
+        if (partialDelivered) {
+            request.callback.onError(t);
+        } else {
+            executor.execute(() -> fallback(request, t)); // Failures arrive on transport and timer threads
+        }
+    }
+
+    // Runs on executor. Used when the API cannot answer: a reply cached for exactly this screen and
+    // question path, however old, beats an error. It is marked as offline so it is not mistaken for
+    // a fresh one.
+    private void fallback(Request request, Throwable cause) {
+        String cached = null;
+        if (request.replyKey != null && diskCache != null) {
+            try {
+                cached = diskCache.get(request.replyKey.imageHash, request.replyKey.variant,
+                        request.replyKey.question, 0, Long.MAX_VALUE);
+            } catch (IOException e) {
+                Log.w(TAG, "Disk cache read failed", e);
+            }
+        }
+        if (cached == null) {
+            request.callback.onError(cause);
+            return;
+        }
+        Log.w(TAG, "Showing a cached reply instead of: " + cause);
+        request.callback.onFirstChunk();
+        request.callback.onReply(cached, true);
+    }
+
+    // Network trouble, timeouts and server-side errors are worth another try. Decided by
+    // exception type only: a message can mention any number.
+    boolean isRetryable(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || isAny(cause, retryable))
+                return true;
+        }
+        return false;
+    }
+
+    boolean isRateLimited(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (isAny(cause, rateLimited))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isAny(Throwable t, List<Class<? extends Throwable>> types) {
+        for (Class<? extends Throwable> type : types) {
+            if (type.isInstance(t))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.mlbbop.managers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// In-memory LRU cache of replies keyed by a screenshot's perceptual hash.
+// Lookups accept a near match (Hamming distance up to maxDistance) so recapturing the same
+// screen still hits. The variant separates entries made under a different model or prompt.
+// Entries expire ttlMs after they were stored.
+public class ResponseCache<V> {
+    private static final class Key {
+        final long hash;
+        final String variant;
+
+        Key(long hash, String variant) {
+            this.hash = hash;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return hash == other.hash && variant.equals(other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(hash) + variant.hashCode();
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long storedAtNs;
+
+        Entry(V value, long storedAtNs) {
+            this.value = value;
+            this.storedAtNs = storedAtNs;
+        }
+    }
+
+    private final int maxDistance;
+    private final long ttlNs;
+    private final LinkedHashMap<Key, Entry<V>> entries;
+
+    public ResponseCache(final int maxEntries, long ttlMs, int maxDistance) {
+        this.maxDistance = maxDistance;
+        this.ttlNs = ttlMs * 1_000_000L;
+        this.entries = new LinkedHashMap<Key, Entry<V>>(maxEntries + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public V get(long hash, String variant) {
+        return get(hash, variant, maxDistance);
+    }
+
+    // Closest unexpired entry within maxDistance, or null
+    public synchronized V get(long hash, String variant, int maxDistance) {
+        long now = System.nanoTime();
+        Key best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        Iterator<Map.Entry<Key, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry<V>> e = it.next();
+            if (now - e.getValue().storedAtNs > ttlNs) {
+                it.remove();
+                continue;
+            }
+            Key key = e.getKey();
+            if (!key.variant.equals(variant))
+                continue;
+            int distance = PerceptualHash.distance(key.hash, hash);
+            if (distance <= maxDistance && distance < bestDistance) {
+                best = key;
+                bestDistance = distance;
+            }
+        }
+        return best != null ? entries.get(best).value : null; // get() also marks it most recent
+    }
+
+    public synchronized void put(long hash, String variant, V value) {
+        entries.put(new Key(hash, variant), new Entry<>(value, System.nanoTime()));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.mlbbop.managers;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Identifies the hero in each of the 10 player slots of a screenshot, without a network call.
+// Slots are independent, so each portrait is matched with PortraitMatcher as a task on a pool
+// sized to the core count. The name labels of the slots that are still unsure are then stacked
+// into one tile and read with a single OCR pass, rather than one pass per slot queued behind each
+// other. A slot that fails stays unknown without holding up the others.
+public class RosterRecognizer {
+    private static final String TAG = "RosterRecognizer";
+    private static final ExecutorService slotPool = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(TeamRoster.SLOTS, Runtime.getRuntime().availableProcessors())));
+
+    private final Resources resources;
+    private final SlotLayout layout;
+    private final HeroTextRecognizer textRecognizer; // Label fallback, may be null
+
+    public interface Callback {
+        // Called on a background thread
+        void onResult(TeamRoster roster);
+    }
+
+    public RosterRecognizer(Context context, SlotLayout layout, HeroTextRecognizer textRecognizer) {
+        this.resources = context.getApplicationContext().getResources();
+        this.layout = layout;
+        this.textRecognizer = textRecognizer;
+    }
+
+    // Decodes the portraits now, so the first recognize does not pay for it
+    public void prepare() {
+        slotPool.execute(() -> HeroPortraits.matcher(resources));
+    }
+
+    public void recognize(Bitmap screenshot, Callback callback) {
+        slotPool.execute(() -> {
+            long startNs = System.nanoTime();
+            // getPixels and ML Kit do not work on hardware bitmaps
+            Bitmap pixels = ScreenCaptureManager.toSoftwareBitmap(screenshot);
+            Merge merge = new Merge(screenshot, pixels, startNs, callback);
+            for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+                int s = slot;
+                slotPool.execute(() -> recognizeSlot(pixels, s, merge));
+            }
+        });
+    }
+
+    // Collects the slot results; the last portrait match to finish reads the labels
+    private final class Merge {
+        final String[] heroes = new String[TeamRoster.SLOTS];
+        final boolean[] confident = new boolean[TeamRoster.SLOTS];
+        final int[][] labels = new int[TeamRoster.SLOTS][]; // Label bounds of the slots still unsure
+        private final AtomicInteger remaining = new AtomicInteger(TeamRoster.SLOTS);
+        private final Bitmap screenshot;
+        private final Bitmap pixels;
+        private final long startNs;
+        private final Callback callback;
+
+        Merge(Bitmap screenshot, Bitmap pixels, long startNs, Callback callback) {
+            this.screenshot = screenshot;
+            this.pixels = pixels;
+            this.startNs = startNs;
+            this.callback = callback;
+        }
+
+        // Each slot calls this exactly once, with its own index. label is null if OCR cannot help.
+        void finish(int slot, String hero, boolean isConfident, int[] label) {
+            heroes[slot] = hero;
+            confident[slot] = isConfident;
+            labels[slot] = label;
+            if (remaining.decrementAndGet() == 0)
+                readLabels(this);
+        }
+
+        void deliver() {
+            if (pixels != screenshot)
+                pixels.recycle();
+            TeamRoster roster = new TeamRoster(heroes, confident);
+            Log.d(TAG, "Recognised slots in " + (System.nanoTime() - startNs) / 1_000_000 + " ms"
+                    + (roster.isComplete() ? "" : " (incomplete)"));
+            callback.onResult(roster);
+        }
+    }
+
+    private void recognizeSlot(Bitmap pixels, int slot, Merge merge) {
+        try {
+            PortraitMatcher portraits = HeroPortraits.matcher(resources);
+            int width = pixels.getWidth();
+            int height = pixels.getHeight();
+            int size = layout.size(height);
+            int[] bounds = new int[4];
+            // Only the pixels around the slot are copied out, not the whole screen
+            layout.window(slot, width, height, PortraitMatcher.searchMargin(size), bounds);
+            int windowWidth = bounds[2] - bounds[0];
+            int windowHeight = bounds[3] - bounds[1];
+            int[] window = new int[windowWidth * windowHeight];
+            pixels.getPixels(window, 0, windowWidth, bounds[0], bounds[1], windowWidth, windowHeight);
+            PortraitMatcher.SlotMatch match = portraits.match(window, windowWidth, windowHeight, size);
+            String guess = match.hero >= 0 ? portraits.name(match.hero) : null;
+            if (match.confident) {
+                merge.finish(slot, guess, true, null);
+                return;
+            }
+            layout.labelWindow(slot, width, height, bounds);
+            boolean hasLabel = textRecognizer != null && bounds[2] > bounds[0] && bounds[3] > bounds[1];
+            merge.finish(slot, guess, false, hasLabel ? bounds : null);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Slot " + slot + " failed", e);
+            merge.finish(slot, null, false, null);
+        }
+    }
+
+    // Stacks the unsure slots' labels into one tile, a blank band between them, and reads them in
+    // one OCR pass. Delivers the roster either way.
+    private void readLabels(Merge merge) {
+        int width = 0;
+        int height = 0;
+        int rows = 0;
+        for (int[] label : merge.labels) {
+            if (label == null)
+                continue;
+            width = Math.max(width, label[2] - label[0]);
+            height += (label[3] - label[1]) * 3 / 2;
+            rows++;
+        }
+        if (rows == 0) {
+            merge.deliver();
+            return;
+        }
+
+        int[] slots = new int[rows];
+        int[] rowBottoms = new int[rows];
+        Bitmap tile;
+        try {
+            tile = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            tile.eraseColor(Color.BLACK);
+            int top = 0;
+            int row = 0;
+            for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+                int[] label = merge.labels[slot];
+                if (label == null)
+                    continue;
+                int w = label[2] - label[0];
+                int h = label[3] - label[1];
+                int[] strip = new int[w * h];
+                merge.pixels.getPixels(strip, 0, w, label[0], label[1], w, h);
+                tile.setPixels(strip, 0, w, 0, top, w, h);
+                top += h * 3 / 2;
+                slots[row] = slot;
+                rowBottoms[row++] = top;
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Label tile failed", e);
+            merge.deliver();
+            return;
+        }
+
+        textRecognizer.recognizeRows(tile, rowBottoms, names -> {
+            tile.recycle();
+            for (int row = 0; row < slots.length; row++) {
+                // Exactly one name beside the portrait is the slot's hero
+                List<String> heroes = names.get(row);
+                if (heroes.size() == 1) {
+                    merge.heroes[slots[row]] = heroes.get(0);
+                    merge.confident[slots[row]] = true;
+                }
+            }
+            merge.deliver();
+        });
+    }
+}
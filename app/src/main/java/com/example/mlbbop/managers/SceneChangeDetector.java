@@ -0,0 +1,44 @@
+package com.example.mlbbop.managers;
+
+// Decides when a stream of frame hashes has settled on a new scene.
+// A frame is reported once it differs from the last reported scene by more than the threshold
+// and has stopped moving (close to the previous sample), so animations and live gameplay do not
+// fire an event on every sample. A reported scene only becomes the baseline once accept() is
+// called, so a scene the caller could not act on is reported again on the next stable sample.
+public class SceneChangeDetector {
+    private final int threshold;
+    private final int stableThreshold;
+
+    private long lastSample;
+    private long lastScene;
+    private boolean hasSample = false;
+    private boolean hasScene = false;
+
+    public SceneChangeDetector(int threshold) {
+        this.threshold = threshold;
+        this.stableThreshold = Math.max(1, threshold / 2);
+    }
+
+    public synchronized boolean offer(long hash) {
+        boolean stable = hasSample && PerceptualHash.distance(hash, lastSample) <= stableThreshold;
+        lastSample = hash;
+        hasSample = true;
+
+        if (!stable)
+            return false;
+        if (hasScene && PerceptualHash.distance(hash, lastScene) <= threshold)
+            return false;
+        return true;
+    }
+
+    // Makes hash the scene later samples are compared against
+    public synchronized void accept(long hash) {
+        lastScene = hash;
+        hasScene = true;
+    }
+
+    public synchronized void reset() {
+        hasSample = false;
+        hasScene = false;
+    }
+}
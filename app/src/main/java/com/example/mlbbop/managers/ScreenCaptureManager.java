@@ -3,19 +3,30 @@ package com.example.mlbbop.managers;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
+import android.graphics.ColorSpace;
 import android.graphics.PixelFormat;
+import android.hardware.HardwareBuffer;
 import android.hardware.display.DisplayManager;
 import android.hardware.display.VirtualDisplay;
 import android.media.Image;
 import android.media.ImageReader;
 import android.media.projection.MediaProjection;
 import android.media.projection.MediaProjectionManager;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 import android.util.DisplayMetrics;
 import android.util.Log;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class ScreenCaptureManager {
     private static final String TAG = "ScreenCaptureManager";
@@ -27,26 +38,190 @@ public class ScreenCaptureManager {
     private ImageReader imageReader;
     private boolean isProjectionActive = false;
 
+    // Frames are delivered on a dedicated thread instead of being polled with sleeps
+    private HandlerThread imageThread;
+    private Handler imageHandler;
+    private final ArrayBlockingQueue<Image> frameSlot = new ArrayBlockingQueue<>(1);
+    private volatile boolean awaitingFrame = false;
+    private volatile long minFrameTimestampNs = 0; // Frames composed earlier may still show the overlay
+    private long frameTimeoutMs;
+
+    // Size the VirtualDisplay actually renders at, relative to the physical display
+    private volatile float captureScale = 1f;
+    private volatile int captureWidth;
+    private volatile int captureHeight;
+
+    // Reused across captures so steady-state conversion allocates nothing
+    private final BitmapPool bitmapPool = new BitmapPool();
+    private ByteBuffer rowScratch;
+
+    // API 29+: previews wrap the frame's HardwareBuffer instead of copying it. The Image has to stay
+    // open while its bitmap is in use, otherwise the reader hands the buffer back to the producer.
+    private final boolean hardwarePreview = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    // At most this many frames stay held at once, so the reader keeps buffers for new frames;
+    // past it, previews are copied like before API 29
+    private static final int MAX_HELD_PREVIEWS = 1;
+    private final Map<Bitmap, Image> heldPreviewImages = new HashMap<>();
+    // Bitmaps delivered to several callbacks of one flight: references not yet released
+    private final Map<Bitmap, Integer> sharedBitmapRefs = new HashMap<>();
+
+    // Continuous mode: sample at a low rate and only report settled scene changes
+    private volatile boolean continuousActive = false;
+    private volatile long continuousIntervalNs;
+    private volatile SceneChangeDetector sceneDetector;
+    private volatile SceneChangeListener sceneListener;
+    private long lastSampleNs;
+    private final Object surfaceLock = new Object(); // Orders attach/detach between the two threads
+    private boolean surfaceParked = false; // guarded by surfaceLock, detached until the next sample
+    private final int[] hashScratch = new int[PerceptualHash.GRID_SIZE];
+
     public interface ScreenshotCallback {
+        // Every callback of a shared capture gets the same bitmap and owns one reference to it:
+        // pass it to releaseBitmap once per call, even when it is already held from another call
         void onScreenshotCaptured(Bitmap bitmap);
+
+        // Called instead of onScreenshotCaptured(null) when no frame arrived before the deadline
+        default void onCaptureTimeout() {
+            onScreenshotCaptured(null);
+        }
     }
 
     public ScreenCaptureManager(Context context) {
         this.context = context;
         this.projectionManager = (MediaProjectionManager) context.getSystemService(Context.MEDIA_PROJECTION_SERVICE);
+        this.frameTimeoutMs = SettingsManager.getCaptureTimeoutMs(context);
+    }
+
+    public void setFrameTimeoutMs(long timeoutMs) {
+        this.frameTimeoutMs = timeoutMs;
     }
 
+    private final ImageReader.OnImageAvailableListener imageListener = reader -> {
+        Image image;
+        try {
+            image = reader.acquireLatestImage();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "acquireLatestImage failed", e);
+            return;
+        }
+        if (image == null)
+            return;
+
+        // An armed capture always gets the first frame composed after its cutoff
+        if (awaitingFrame && image.getTimestamp() >= minFrameTimestampNs && frameSlot.offer(image))
+            return;
+
+        if (continuousActive) {
+            boolean kept = sampleForSceneChange(image);
+            parkSurface();
+            if (kept)
+                return; // Image handed to the executor, which closes it
+        }
+
+        // Everything else is dropped straight away so the reader never runs out of buffers
+        image.close();
+    };
+
+    // Runs on imageThread. Returns true when the image was kept for conversion.
+    private boolean sampleForSceneChange(Image image) {
+        long now = System.nanoTime();
+        if (now - lastSampleNs < continuousIntervalNs)
+            return false;
+        lastSampleNs = now;
+
+        Image.Plane plane = image.getPlanes()[0];
+        long hash = PerceptualHash.dHashRgba(plane.getBuffer(), image.getWidth(), image.getHeight(),
+                plane.getRowStride(), plane.getPixelStride(), hashScratch);
+        SceneChangeDetector detector = sceneDetector;
+        SceneChangeListener listener = sceneListener;
+        if (detector == null || listener == null || !detector.offer(hash))
+            return false;
+
+        Log.d(TAG, "Scene change detected: " + Long.toHexString(hash));
+        backgroundExecutor.execute(() -> {
+            Bitmap bitmap;
+            try {
+                bitmap = copyRegion(image, 0, 0, image.getWidth(), image.getHeight());
+            } catch (Exception e) {
+                Log.e(TAG, "Error converting scene frame", e);
+                return;
+            } finally {
+                image.close();
+            }
+            new Handler(Looper.getMainLooper()).post(() -> listener.onSceneChanged(bitmap, hash));
+        });
+        return true;
+    }
+
+    // Runs on imageThread. Continuous mode needs one frame per interval, so the display is detached
+    // until the next sample is due instead of composing frames that would only be dropped.
+    private void parkSurface() {
+        synchronized (surfaceLock) {
+            if (awaitingFrame || surfaceParked || virtualDisplay == null || imageHandler == null)
+                return;
+            virtualDisplay.setSurface(null);
+            surfaceParked = true;
+        }
+        long waitNs = continuousIntervalNs - (System.nanoTime() - lastSampleNs);
+        imageHandler.postDelayed(resumeSurface, Math.max(0, waitNs / 1_000_000));
+    }
+
+    private final Runnable resumeSurface = () -> {
+        synchronized (surfaceLock) {
+            if (!surfaceParked)
+                return; // A capture attached it already
+            surfaceParked = false;
+            if (continuousActive && virtualDisplay != null && imageReader != null)
+                virtualDisplay.setSurface(imageReader.getSurface());
+        }
+    };
+
     private void setupVirtualDisplay() {
         if (mediaProjection == null)
             return;
 
         DisplayMetrics metrics = context.getResources().getDisplayMetrics();
-        int width = metrics.widthPixels;
-        int height = metrics.heightPixels;
-        int density = metrics.densityDpi;
+        float scale = resolveCaptureScale(metrics.widthPixels, metrics.heightPixels);
+        // Keep dimensions even; some encoders and GPUs dislike odd sizes
+        int width = Math.max(2, Math.round(metrics.widthPixels * scale) & ~1);
+        int height = Math.max(2, Math.round(metrics.heightPixels * scale) & ~1);
+        int density = Math.max(1, Math.round(metrics.densityDpi * scale));
+
+        if (imageThread == null) {
+            imageThread = new HandlerThread("ScreenCaptureFrames");
+            imageThread.start();
+            imageHandler = new Handler(imageThread.getLooper());
+        }
+
+        if (imageReader != null && (imageReader.getWidth() != width || imageReader.getHeight() != height)) {
+            // Resolution setting changed: swap the reader and let the GPU scale into the new size
+            Log.d(TAG, "Capture size changed to " + width + "x" + height);
+            if (virtualDisplay != null) {
+                virtualDisplay.setSurface(null);
+                virtualDisplay.resize(width, height, density);
+            }
+            drainFrameSlot();
+            closeHeldPreviews();
+            imageReader.close();
+            imageReader = null;
+        }
 
         if (imageReader == null) {
-            imageReader = ImageReader.newInstance(width, height, PixelFormat.RGBA_8888, 2);
+            // 3 buffers: one may sit in frameSlot while another is being converted for a scene change.
+            // The hardware path needs one more for each held preview, see MAX_HELD_PREVIEWS.
+            if (hardwarePreview) {
+                imageReader = ImageReader.newInstance(width, height, PixelFormat.RGBA_8888, 4,
+                        HardwareBuffer.USAGE_CPU_READ_OFTEN | HardwareBuffer.USAGE_GPU_SAMPLED_IMAGE);
+            } else {
+                imageReader = ImageReader.newInstance(width, height, PixelFormat.RGBA_8888, 3);
+            }
+            imageReader.setOnImageAvailableListener(imageListener, imageHandler);
+            synchronized (surfaceLock) {
+                if (continuousActive && virtualDisplay != null) {
+                    surfaceParked = false;
+                    virtualDisplay.setSurface(imageReader.getSurface());
+                }
+            }
         }
 
         if (virtualDisplay == null) {
@@ -57,6 +232,40 @@ public class ScreenCaptureManager {
                     DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
                     null, null, null);
         }
+
+        captureScale = scale;
+        captureWidth = width;
+        captureHeight = height;
+    }
+
+    private float resolveCaptureScale(int screenWidth, int screenHeight) {
+        int shortEdge = Math.min(screenWidth, screenHeight);
+        String resolution = SettingsManager.getCaptureResolution(context);
+        float scale;
+        if (SettingsManager.RESOLUTION_1080P.equals(resolution)) {
+            scale = 1080f / shortEdge;
+        } else if (SettingsManager.RESOLUTION_720P.equals(resolution)) {
+            scale = 720f / shortEdge;
+        } else if (SettingsManager.RESOLUTION_CUSTOM.equals(resolution)) {
+            scale = SettingsManager.getCaptureCustomScale(context);
+        } else {
+            scale = 1f;
+        }
+        // Never upscale, and keep enough pixels to be useful
+        return Math.max(0.1f, Math.min(1f, scale));
+    }
+
+    // Capture-to-screen factor; divide capture coordinates by it to map back to the real display
+    public float getCaptureScale() {
+        return captureScale;
+    }
+
+    public int getCaptureWidth() {
+        return captureWidth;
+    }
+
+    public int getCaptureHeight() {
+        return captureHeight;
     }
 
     public void startProjection(int resultCode, Intent data) {
@@ -79,97 +288,450 @@ public class ScreenCaptureManager {
 
     public void stopProjection() {
         isProjectionActive = false;
+        continuousActive = false;
+        sceneListener = null;
         if (virtualDisplay != null) {
             virtualDisplay.release();
             virtualDisplay = null;
         }
+        drainFrameSlot();
+        closeHeldPreviews();
         if (imageReader != null) {
             imageReader.close();
             imageReader = null;
         }
+        if (imageThread != null) {
+            imageThread.quitSafely();
+            imageThread = null;
+            imageHandler = null;
+        }
         if (mediaProjection != null) {
             mediaProjection.stop();
             mediaProjection = null;
         }
+        bitmapPool.clear();
+        synchronized (sharedBitmapRefs) {
+            sharedBitmapRefs.clear();
+        }
     }
 
     private final java.util.concurrent.ExecutorService backgroundExecutor = java.util.concurrent.Executors
             .newSingleThreadExecutor();
 
-    public void captureScreenshot(ScreenshotCallback callback) {
-        if (mediaProjection == null) {
-            callback.onScreenshotCaptured(null);
-            return;
-        }
+    public interface SceneChangeListener {
+        // Full-frame pooled bitmap of the new scene, delivered on the main thread. The scene keeps
+        // being reported until acceptScene(hash) is called.
+        void onSceneChanged(Bitmap bitmap, long hash);
+    }
 
-        backgroundExecutor.execute(() -> {
-            try {
-                // Ensure resources exist (in case of weird lifecycle kill)
-                setupVirtualDisplay();
+    // Handle returned for every capture so callers can withdraw interest before it completes
+    public interface CaptureRequest {
+        void cancel();
+    }
 
-                if (virtualDisplay == null || imageReader == null) {
-                    Log.e(TAG, "Failed to setup resources");
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onScreenshotCaptured(null));
-                    return;
-                }
+    private static final CaptureRequest COMPLETED_REQUEST = () -> {
+    };
 
-                // 1. RESUME: Attach surface to start capturing
-                Log.d(TAG, "Resuming VirtualDisplay (Attach Surface)");
-                virtualDisplay.setSurface(imageReader.getSurface());
+    // Captures waiting for backgroundExecutor. When full, the oldest one is dropped.
+    private static final int MAX_PENDING_CAPTURES = 2;
+    private final Object captureLock = new Object();
+    private final ArrayDeque<PendingCapture> pendingCaptures = new ArrayDeque<>();
+    private ScreenshotFlight screenshotFlight; // Single-flight screenshot that new callers join
 
-                // 2. Wait for frame
-                try {
-                    Thread.sleep(150);
-                } catch (InterruptedException ignored) {
-                }
+    private abstract class PendingCapture implements Runnable {
+        Thread worker; // guarded by captureLock, set while executing
 
-                // 3. Acquire Image
-                Image image = null;
-                for (int i = 0; i < 3; i++) {
-                    image = imageReader.acquireLatestImage();
-                    if (image != null)
-                        break;
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException ignored) {
-                    }
+        @Override
+        public final void run() {
+            synchronized (captureLock) {
+                if (!pendingCaptures.remove(this))
+                    return; // Dropped or cancelled while queued
+                worker = Thread.currentThread();
+            }
+            try {
+                execute();
+            } finally {
+                synchronized (captureLock) {
+                    worker = null;
                 }
+                Thread.interrupted(); // Clear a late cancel so it cannot leak into the next task
+            }
+        }
+
+        abstract void execute();
 
+        // Called outside captureLock when the queue overflowed before this capture started
+        abstract void onDropped();
+
+        // Caller holds captureLock. Aborts the frame wait if running, or unqueues if not.
+        void abort() {
+            if (worker != null) {
+                worker.interrupt();
+            } else {
+                pendingCaptures.remove(this);
+            }
+        }
+    }
+
+    private void enqueue(PendingCapture capture) {
+        PendingCapture dropped = null;
+        synchronized (captureLock) {
+            if (pendingCaptures.size() >= MAX_PENDING_CAPTURES) {
+                dropped = pendingCaptures.pollFirst();
+            }
+            pendingCaptures.addLast(capture);
+        }
+        if (dropped != null) {
+            Log.w(TAG, "Capture queue full, dropping oldest request");
+            dropped.onDropped();
+        }
+        backgroundExecutor.execute(capture);
+    }
+
+    private final class ScreenshotFlight extends PendingCapture {
+        final List<ScreenshotCallback> callbacks = new ArrayList<>(); // guarded by captureLock
+        long notBeforeNanos; // guarded by captureLock, latest cutoff of everyone who joined
+
+        @Override
+        void execute() {
+            Bitmap bitmap = null;
+            boolean timedOut = false;
+            try {
+                synchronized (captureLock) {
+                    minFrameTimestampNs = notBeforeNanos;
+                }
+                Image image = acquireFrame();
                 if (image != null) {
-                    Image.Plane[] planes = image.getPlanes();
-                    ByteBuffer buffer = planes[0].getBuffer();
-                    int pixelStride = planes[0].getPixelStride();
-                    int rowStride = planes[0].getRowStride();
-                    int width = image.getWidth();
-                    int height = image.getHeight();
-                    int rowPadding = rowStride - pixelStride * width;
-
-                    Bitmap bitmap = Bitmap.createBitmap(
-                            width + rowPadding / pixelStride, height, Bitmap.Config.ARGB_8888);
-                    bitmap.copyPixelsFromBuffer(buffer);
-
-                    Bitmap finalBitmap = Bitmap.createBitmap(bitmap, 0, 0, width, height);
-                    image.close();
-
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onScreenshotCaptured(finalBitmap));
+                    boolean held = false;
+                    try {
+                        if (hardwarePreview) {
+                            bitmap = wrapHardwareBuffer(image);
+                            held = bitmap != null;
+                        }
+                        if (bitmap == null) {
+                            bitmap = copyRegion(image, 0, 0, image.getWidth(), image.getHeight());
+                        }
+                    } finally {
+                        if (!held)
+                            image.close();
+                    }
+                    LatencyTracer.mark(LatencyTracer.Stage.PIXEL_COPY);
+                    LatencyTracer.end(LatencyTracer.Pipeline.CAPTURE);
                 } else {
-                    Log.e(TAG, "Image is null after resume");
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onScreenshotCaptured(null));
+                    timedOut = true;
                 }
-
             } catch (Exception e) {
                 Log.e(TAG, "Error capturing screenshot", e);
-                new Handler(Looper.getMainLooper()).post(() -> callback.onScreenshotCaptured(null));
             } finally {
-                // 4. PAUSE: Detach surface to stop capturing
-                Log.d(TAG, "Pausing VirtualDisplay (Detach Surface)");
-                if (virtualDisplay != null) {
-                    virtualDisplay.setSurface(null);
+                pauseCapture();
+            }
+
+            List<ScreenshotCallback> targets = finish();
+            if (targets.isEmpty()) {
+                releaseBitmap(bitmap); // Everyone cancelled
+                return;
+            }
+            if (bitmap != null && targets.size() > 1) {
+                synchronized (sharedBitmapRefs) {
+                    sharedBitmapRefs.put(bitmap, targets.size());
+                }
+            }
+            Bitmap finalBitmap = bitmap;
+            boolean finalTimedOut = timedOut;
+            new Handler(Looper.getMainLooper()).post(() -> {
+                for (ScreenshotCallback target : targets) {
+                    if (finalTimedOut)
+                        target.onCaptureTimeout();
+                    else
+                        target.onScreenshotCaptured(finalBitmap);
+                }
+            });
+        }
+
+        @Override
+        void onDropped() {
+            List<ScreenshotCallback> targets = finish();
+            new Handler(Looper.getMainLooper()).post(() -> {
+                for (ScreenshotCallback target : targets) {
+                    target.onScreenshotCaptured(null);
                 }
+            });
+        }
+
+        // Detaches this flight so later callers start a new one, and returns who to notify
+        private List<ScreenshotCallback> finish() {
+            synchronized (captureLock) {
+                if (screenshotFlight == this)
+                    screenshotFlight = null;
+                List<ScreenshotCallback> targets = new ArrayList<>(callbacks);
+                callbacks.clear();
+                return targets;
+            }
+        }
+
+        void cancel(ScreenshotCallback callback) {
+            synchronized (captureLock) {
+                if (!callbacks.remove(callback) || !callbacks.isEmpty())
+                    return;
+                // Last interested caller is gone: stop waiting for a frame
+                if (screenshotFlight == this)
+                    screenshotFlight = null;
+                abort();
+            }
+        }
+    }
+
+    // Concurrent calls share one capture: they all receive the same bitmap.
+    public CaptureRequest captureScreenshot(ScreenshotCallback callback) {
+        return captureScreenshot(0, callback);
+    }
+
+    // Only accepts a frame whose timestamp (System.nanoTime() clock) is at or after notBeforeNanos,
+    // e.g. the vsync at which the overlay was known to be gone.
+    public CaptureRequest captureScreenshot(long notBeforeNanos, ScreenshotCallback callback) {
+        if (mediaProjection == null) {
+            callback.onScreenshotCaptured(null);
+            return COMPLETED_REQUEST;
+        }
+
+        ScreenshotFlight flight;
+        boolean joined;
+        synchronized (captureLock) {
+            joined = screenshotFlight != null;
+            if (!joined) {
+                screenshotFlight = new ScreenshotFlight();
             }
+            flight = screenshotFlight;
+            flight.callbacks.add(callback);
+            flight.notBeforeNanos = Math.max(flight.notBeforeNanos, notBeforeNanos);
+        }
+        if (joined) {
+            Log.d(TAG, "Capture already in flight, sharing its result");
+        } else {
+            enqueue(flight);
+        }
+        return () -> flight.cancel(callback);
+    }
+
+    // Attaches the surface for one frame per 1/fps seconds and hashes it on the frame thread
+    public void startContinuousCapture(float fps, int threshold, SceneChangeListener listener) {
+        if (mediaProjection == null)
+            return;
+
+        continuousIntervalNs = (long) (1_000_000_000L / Math.max(0.1f, fps));
+        sceneDetector = new SceneChangeDetector(threshold);
+        sceneListener = listener;
+        lastSampleNs = 0;
+
+        backgroundExecutor.execute(() -> {
+            try {
+                setupVirtualDisplay();
+                if (virtualDisplay == null || imageReader == null)
+                    return;
+                synchronized (surfaceLock) {
+                    continuousActive = true;
+                    surfaceParked = false;
+                    Log.d(TAG, "Continuous capture started at " + fps + " fps");
+                    virtualDisplay.setSurface(imageReader.getSurface());
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting continuous capture", e);
+                continuousActive = false;
+            }
+        });
+    }
+
+    public void stopContinuousCapture() {
+        backgroundExecutor.execute(() -> {
+            continuousActive = false;
+            sceneListener = null;
+            sceneDetector = null;
+            pauseCapture();
         });
     }
 
+    // Stops reporting the scene with this hash; later changes are measured against it
+    public void acceptScene(long hash) {
+        SceneChangeDetector detector = sceneDetector;
+        if (detector != null)
+            detector.accept(hash);
+    }
+
+    public boolean isContinuousActive() {
+        return continuousActive;
+    }
+
+    // Resumes the display and blocks until the first fresh frame, or returns null on timeout.
+    // Callers must close the image and call pauseCapture().
+    private Image acquireFrame() {
+        // Ensure resources exist (in case of weird lifecycle kill)
+        setupVirtualDisplay();
+
+        if (virtualDisplay == null || imageReader == null) {
+            throw new IllegalStateException("Failed to setup resources");
+        }
+
+        // 1. ARM: Drop anything stale so we only take a frame rendered after attach
+        drainFrameSlot();
+        synchronized (surfaceLock) {
+            awaitingFrame = true;
+            surfaceParked = false; // Continuous mode parks again after this capture
+
+            // 2. RESUME: Attach surface to start capturing
+            Log.d(TAG, "Resuming VirtualDisplay (Attach Surface)");
+            virtualDisplay.setSurface(imageReader.getSurface());
+        }
+        LatencyTracer.mark(LatencyTracer.Stage.SURFACE_ATTACH);
+
+        // 3. Wait for the first frame, bounded by the configured deadline
+        Image image = null;
+        try {
+            image = frameSlot.poll(frameTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        awaitingFrame = false;
+
+        if (image == null) {
+            Log.e(TAG, "No frame within " + frameTimeoutMs + " ms after resume");
+        } else {
+            LatencyTracer.mark(LatencyTracer.Stage.FIRST_FRAME);
+        }
+        return image;
+    }
+
+    private void pauseCapture() {
+        awaitingFrame = false;
+        minFrameTimestampNs = 0;
+        drainFrameSlot();
+        synchronized (surfaceLock) {
+            if (continuousActive)
+                return; // Continuous mode attaches and parks the surface by itself
+
+            // 4. PAUSE: Detach surface to stop capturing
+            Log.d(TAG, "Pausing VirtualDisplay (Detach Surface)");
+            surfaceParked = false;
+            if (virtualDisplay != null) {
+                virtualDisplay.setSurface(null);
+            }
+        }
+    }
+
+    // Copies a rectangle of the RGBA plane into a pooled bitmap of exactly that size.
+    // Only runs on backgroundExecutor, so rowScratch needs no locking.
+    private Bitmap copyRegion(Image image, int left, int top, int width, int height) {
+        Image.Plane plane = image.getPlanes()[0];
+        ByteBuffer buffer = plane.getBuffer();
+        int pixelStride = plane.getPixelStride();
+        int rowStride = plane.getRowStride();
+        int rowBytes = width * pixelStride;
+
+        Bitmap bitmap = bitmapPool.acquire(width, height);
+        if (left == 0 && rowStride == rowBytes) {
+            // Whole, unpadded rows: the plane already has the bitmap's layout
+            buffer.limit(top * rowStride + height * rowBytes);
+            buffer.position(top * rowStride);
+            bitmap.copyPixelsFromBuffer(buffer);
+            buffer.clear();
+            return bitmap;
+        }
+
+        // Padded or partial rows: compact each row into the scratch buffer, then copy once
+        int size = rowBytes * height;
+        if (rowScratch == null || rowScratch.capacity() < size) {
+            rowScratch = ByteBuffer.allocateDirect(size);
+        }
+        rowScratch.clear();
+        for (int y = top; y < top + height; y++) {
+            int rowStart = y * rowStride + left * pixelStride;
+            buffer.limit(rowStart + rowBytes);
+            buffer.position(rowStart);
+            rowScratch.put(buffer);
+        }
+        buffer.clear();
+        rowScratch.flip();
+        bitmap.copyPixelsFromBuffer(rowScratch);
+        return bitmap;
+    }
+
+    // Zero-copy preview: the bitmap samples the frame's HardwareBuffer directly on the GPU.
+    // Returns null when the frame has no usable buffer, in which case the CPU copy is used.
+    private Bitmap wrapHardwareBuffer(Image image) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q)
+            return null;
+        HardwareBuffer buffer = image.getHardwareBuffer();
+        if (buffer == null)
+            return null;
+        try {
+            synchronized (heldPreviewImages) {
+                if (heldPreviewImages.size() >= MAX_HELD_PREVIEWS)
+                    return null; // Earlier previews still on screen
+                Bitmap bitmap = Bitmap.wrapHardwareBuffer(buffer, ColorSpace.get(ColorSpace.Named.SRGB));
+                if (bitmap != null)
+                    heldPreviewImages.put(bitmap, image);
+                return bitmap;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "wrapHardwareBuffer failed, falling back to CPU copy", e);
+            return null;
+        } finally {
+            buffer.close(); // The bitmap holds its own reference
+        }
+    }
+
+    // Returns a bitmap whose pixels can be read on the CPU (encoding, OCR, hashing).
+    // Hardware previews are read back into a new bitmap; everything else is returned as is.
+    public static Bitmap toSoftwareBitmap(Bitmap bitmap) {
+        if (bitmap != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+            return bitmap.copy(Bitmap.Config.ARGB_8888, false);
+        }
+        return bitmap;
+    }
+
+    // Hands a bitmap returned by captureScreenshot back for reuse once nothing references it.
+    // A shared bitmap is only recycled when its last reference is released.
+    public void releaseBitmap(Bitmap bitmap) {
+        if (bitmap == null)
+            return;
+        synchronized (sharedBitmapRefs) {
+            Integer refs = sharedBitmapRefs.get(bitmap);
+            if (refs != null) {
+                if (refs > 1) {
+                    sharedBitmapRefs.put(bitmap, refs - 1);
+                    return;
+                }
+                sharedBitmapRefs.remove(bitmap);
+            }
+        }
+        Image held;
+        synchronized (heldPreviewImages) {
+            held = heldPreviewImages.remove(bitmap);
+        }
+        if (held != null) {
+            bitmap.recycle();
+            held.close();
+            return;
+        }
+        bitmapPool.release(bitmap);
+    }
+
+    private void closeHeldPreviews() {
+        synchronized (heldPreviewImages) {
+            for (Image image : heldPreviewImages.values()) {
+                image.close();
+            }
+            heldPreviewImages.clear();
+        }
+    }
+
+    private void drainFrameSlot() {
+        Image stale;
+        while ((stale = frameSlot.poll()) != null) {
+            stale.close();
+        }
+    }
+
     public boolean isProjectionActive() {
         return isProjectionActive;
     }
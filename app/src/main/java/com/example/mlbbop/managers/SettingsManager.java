@@ -10,6 +10,33 @@ public class SettingsManager {
     private static final String KEY_API_KEY_3 = "gemini_api_key_3";
     private static final String KEY_ACTIVE_KEY_INDEX = "active_key_index";
     private static final String KEY_MODEL_NAME = "gemini_model_name";
+    private static final String KEY_CAPTURE_TIMEOUT_MS = "capture_timeout_ms";
+    private static final String KEY_CAPTURE_RESOLUTION = "capture_resolution";
+    private static final String KEY_CAPTURE_SCALE = "capture_custom_scale";
+    private static final String KEY_AUTO_CAPTURE = "auto_capture_enabled";
+    private static final String KEY_AUTO_CAPTURE_FPS = "auto_capture_fps";
+    private static final String KEY_SCENE_THRESHOLD = "scene_change_threshold";
+    private static final String KEY_UPLOAD_LONG_EDGE = "upload_long_edge";
+    private static final String KEY_UPLOAD_FORMAT = "upload_format";
+    private static final String KEY_UPLOAD_BYTE_BUDGET = "upload_byte_budget";
+    private static final String KEY_STREAMING = "streaming_responses";
+    private static final String KEY_STRUCTURED = "structured_responses";
+    private static final String KEY_HEDGING = "hedged_requests";
+    private static final String KEY_HEDGE_PERCENTILE = "hedge_percentile";
+    private static final String KEY_HEDGE_MAX_RATE = "hedge_max_rate";
+    private static final String KEY_REQUEST_TIMEOUT_MS = "request_timeout_ms";
+    private static final String KEY_MAX_RETRIES = "max_retries";
+    private static final String KEY_RETRY_BASE_DELAY_MS = "retry_base_delay_ms";
+    private static final String KEY_BREAKER_FAILURE_RATE = "breaker_failure_rate";
+    private static final String KEY_BREAKER_OPEN_MS = "breaker_open_ms";
+    private static final String KEY_IMAGE_ONCE = "image_once_sessions";
+    private static final String KEY_SESSION_WINDOW = "session_window_turns";
+    private static final String KEY_ON_DEVICE_RECOGNITION = "on_device_recognition";
+
+    public static final String RESOLUTION_NATIVE = "native";
+    public static final String RESOLUTION_1080P = "1080p";
+    public static final String RESOLUTION_720P = "720p";
+    public static final String RESOLUTION_CUSTOM = "custom";
 
     public static void saveApiKey(Context context, int index, String apiKey) {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
@@ -48,6 +75,173 @@ public class SettingsManager {
         return prefs.getString(KEY_MODEL_NAME, "gemini-2.5-flash"); // Default model
     }
 
+    public static void saveCaptureTimeoutMs(Context context, long timeoutMs) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putLong(KEY_CAPTURE_TIMEOUT_MS, timeoutMs).apply();
+    }
+
+    public static long getCaptureTimeoutMs(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getLong(KEY_CAPTURE_TIMEOUT_MS, 500); // Deadline for the first frame after attach
+    }
+
+    public static void saveCaptureResolution(Context context, String resolution) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putString(KEY_CAPTURE_RESOLUTION, resolution).apply();
+    }
+
+    public static String getCaptureResolution(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getString(KEY_CAPTURE_RESOLUTION, RESOLUTION_1080P); // Enough to read names and portraits
+    }
+
+    public static void saveCaptureCustomScale(Context context, float scale) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putFloat(KEY_CAPTURE_SCALE, scale).apply();
+    }
+
+    public static float getCaptureCustomScale(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getFloat(KEY_CAPTURE_SCALE, 0.5f);
+    }
+
+    public static void saveAutoCaptureEnabled(Context context, boolean enabled) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putBoolean(KEY_AUTO_CAPTURE, enabled).apply();
+    }
+
+    public static boolean isAutoCaptureEnabled(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getBoolean(KEY_AUTO_CAPTURE, false);
+    }
+
+    public static void saveAutoCaptureFps(Context context, float fps) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putFloat(KEY_AUTO_CAPTURE_FPS, fps).apply();
+    }
+
+    public static float getAutoCaptureFps(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getFloat(KEY_AUTO_CAPTURE_FPS, 1f);
+    }
+
+    public static void saveSceneChangeThreshold(Context context, int threshold) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putInt(KEY_SCENE_THRESHOLD, threshold).apply();
+    }
+
+    public static int getSceneChangeThreshold(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(KEY_SCENE_THRESHOLD, 12); // Hamming distance out of 64 bits
+    }
+
+    public static int getUploadLongEdge(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(KEY_UPLOAD_LONG_EDGE, 1280);
+    }
+
+    public static String getUploadFormat(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getString(KEY_UPLOAD_FORMAT, ImageEncoder.FORMAT_JPEG);
+    }
+
+    public static int getUploadByteBudget(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(KEY_UPLOAD_BYTE_BUDGET, 150 * 1024);
+    }
+
+    public static boolean isStreamingEnabled(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getBoolean(KEY_STREAMING, true);
+    }
+
+    public static void saveStructuredResponseEnabled(Context context, boolean enabled) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putBoolean(KEY_STRUCTURED, enabled).apply();
+    }
+
+    public static boolean isStructuredResponseEnabled(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getBoolean(KEY_STRUCTURED, false); // JSON replies parsed into AnalysisResult
+    }
+
+    public static void saveHedgingEnabled(Context context, boolean enabled) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putBoolean(KEY_HEDGING, enabled).apply();
+    }
+
+    public static boolean isHedgingEnabled(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getBoolean(KEY_HEDGING, false); // Duplicates slow requests, costs quota
+    }
+
+    public static void saveHedgePercentile(Context context, float percentile) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putFloat(KEY_HEDGE_PERCENTILE, percentile).apply();
+    }
+
+    public static float getHedgePercentile(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getFloat(KEY_HEDGE_PERCENTILE, 95f); // Hedge once a request is slower than this
+    }
+
+    public static void saveHedgeMaxRate(Context context, float maxRate) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putFloat(KEY_HEDGE_MAX_RATE, maxRate).apply();
+    }
+
+    public static float getHedgeMaxRate(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getFloat(KEY_HEDGE_MAX_RATE, 0.1f); // At most 1 hedge per 10 requests
+    }
+
+    public static long getRequestTimeoutMs(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getLong(KEY_REQUEST_TIMEOUT_MS, 30_000); // Deadline for a request's first byte
+    }
+
+    public static int getMaxRetries(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(KEY_MAX_RETRIES, 2);
+    }
+
+    public static long getRetryBaseDelayMs(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getLong(KEY_RETRY_BASE_DELAY_MS, 500); // Doubles on each retry
+    }
+
+    public static float getBreakerFailureRate(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getFloat(KEY_BREAKER_FAILURE_RATE, 0.5f);
+    }
+
+    public static long getBreakerOpenMs(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getLong(KEY_BREAKER_OPEN_MS, 30_000);
+    }
+
+    public static boolean isImageOnceSessionEnabled(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getBoolean(KEY_IMAGE_ONCE, true); // Follow-ups use a text match state, not the image
+    }
+
+    public static int getSessionWindowTurns(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(KEY_SESSION_WINDOW, 3); // Recent exchanges kept with the match state
+    }
+
+    public static void saveOnDeviceRecognitionEnabled(Context context, boolean enabled) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putBoolean(KEY_ON_DEVICE_RECOGNITION, enabled).apply();
+    }
+
+    public static boolean isOnDeviceRecognitionEnabled(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        // Send heroes recognised on device, not the image. Off until SlotLayout.DRAFT has been
+        // checked against recorded captures, see RecordedDraftTest.
+        return prefs.getBoolean(KEY_ON_DEVICE_RECOGNITION, false);
+    }
+
     private static String getKeyForIndex(int index) {
         switch (index) {
             case 2:
@@ -0,0 +1,68 @@
+package com.example.mlbbop.managers;
+
+// Where the 10 player portraits sit on a landscape screen, as fractions of the screen size.
+// Slots 0-4 are my team in a column on the left, 5-9 the enemy team mirrored on the right.
+// The positions only need to be close: PortraitMatcher searches a margin around each slot.
+public final class SlotLayout {
+    // Pick and ban screen. Estimated from the game's layout, not yet measured on recorded
+    // captures; PortraitMatcherTest draws its screens from these same numbers, so it cannot catch
+    // them being off. RecordedDraftTest checks them against real captures once some are added.
+    public static final SlotLayout DRAFT = new SlotLayout(0.03f, 0.16f, 0.155f, 0.13f);
+
+    private static final int LABEL_WIDTH = 3; // In portrait sizes
+
+    private final float sideMargin; // Of the width
+    private final float firstTop; // The rest are of the height
+    private final float rowStep;
+    private final float size;
+
+    public SlotLayout(float sideMargin, float firstTop, float rowStep, float size) {
+        this.sideMargin = sideMargin;
+        this.firstTop = firstTop;
+        this.rowStep = rowStep;
+        this.size = size;
+    }
+
+    // Portraits are square, so their side follows the screen height only
+    public int size(int height) {
+        return Math.round(size * height);
+    }
+
+    public int left(int slot, int width, int height) {
+        int margin = Math.round(sideMargin * width);
+        return slot < TeamRoster.TEAM_SIZE ? margin : width - margin - size(height);
+    }
+
+    public int top(int slot, int height) {
+        return Math.round((firstTop + (slot % TeamRoster.TEAM_SIZE) * rowStep) * height);
+    }
+
+    // Where the slot's hero name is printed: beside the portrait, towards the middle of the screen.
+    // Written to out as left, top, right, bottom.
+    public void labelWindow(int slot, int width, int height, int[] out) {
+        int left = left(slot, width, height);
+        int side = size(height);
+        int top = top(slot, height);
+        if (slot < TeamRoster.TEAM_SIZE) {
+            out[0] = left + side;
+            out[2] = Math.min(width, left + side * (1 + LABEL_WIDTH));
+        } else {
+            out[0] = Math.max(0, left - side * LABEL_WIDTH);
+            out[2] = left;
+        }
+        out[1] = top;
+        out[3] = Math.min(height, top + side);
+    }
+
+    // The area searched for slot's portrait: the slot grown by searchMargin on every side, clipped
+    // to the screen. Written to out as left, top, right, bottom.
+    public void window(int slot, int width, int height, int searchMargin, int[] out) {
+        int left = left(slot, width, height);
+        int top = top(slot, height);
+        int side = size(height);
+        out[0] = Math.max(0, left - searchMargin);
+        out[1] = Math.max(0, top - searchMargin);
+        out[2] = Math.min(width, left + side + searchMargin);
+        out[3] = Math.min(height, top + side + searchMargin);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.mlbbop.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The heroes of a match by player slot: 0-4 are my team, 5-9 the enemy team.
+// A slot is null when its hero could not be identified.
+public final class TeamRoster {
+    public static final int TEAM_SIZE = 5;
+    public static final int SLOTS = 2 * TEAM_SIZE;
+
+    private final String[] heroes;
+    private final boolean[] confident;
+
+    public TeamRoster(String[] heroes, boolean[] confident) {
+        this.heroes = heroes.clone();
+        this.confident = confident.clone();
+    }
+
+    public String hero(int slot) {
+        return heroes[slot];
+    }
+
+    public boolean isConfident(int slot) {
+        return heroes[slot] != null && confident[slot];
+    }
+
+    public int confidentCount() {
+        int count = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (isConfident(slot))
+                count++;
+        }
+        return count;
+    }
+
+    // True when every slot was identified with confidence, so the screenshot is not needed
+    public boolean isComplete() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (!isConfident(slot))
+                return false;
+        }
+        return true;
+    }
+
+    public List<String> allies() {
+        return team(0);
+    }
+
+    public List<String> enemies() {
+        return team(TEAM_SIZE);
+    }
+
+    private List<String> team(int first) {
+        List<String> team = new ArrayList<>(TEAM_SIZE);
+        for (int slot = first; slot < first + TEAM_SIZE; slot++) {
+            if (heroes[slot] != null)
+                team.add(heroes[slot]);
+        }
+        return Collections.unmodifiableList(team);
+    }
+
+    public String toPrompt() {
+        return "My team: " + String.join(", ", allies()) + "\nEnemy team: " + String.join(", ", enemies());
+    }
+
+    // Cache key standing in for the screenshot hash. Order within a team does not matter.
+    public long hash() {
+        List<String> allies = new ArrayList<>(allies());
+        List<String> enemies = new ArrayList<>(enemies());
+        Collections.sort(allies);
+        Collections.sort(enemies);
+        long hash = 0xcbf29ce484222325L; // FNV-1a
+        String key = String.join("|", allies) + "#" + String.join("|", enemies);
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
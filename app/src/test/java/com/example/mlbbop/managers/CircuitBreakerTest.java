@@ -0,0 +1,103 @@
+package com.example.mlbbop.managers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    private long now;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        now = 1_000;
+        // Window of 10, at least 4 calls, opens at 50% failures, stays open for 30 s
+        breaker = new CircuitBreaker(10, 4, 0.5, 30_000, () -> now);
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onSuccess();
+        }
+    }
+
+    @Test
+    public void staysClosedBelowMinCalls() {
+        fail(3);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void opensAtFailureRate() {
+        succeed(2);
+        fail(1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(1); // 2 of 4 failed
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(30_000, breaker.retryInMs());
+    }
+
+    @Test
+    public void oldOutcomesLeaveTheWindow() {
+        fail(3);
+        succeed(7); // 3 of 10 failed
+        succeed(3); // The three failures have slid out
+        fail(4); // 4 of 10 failed
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(1); // 5 of 10
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenAllowsOneTrialThenCloses() {
+        fail(4);
+        now += 29_999;
+        assertFalse(breaker.allowRequest());
+
+        now += 1;
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest()); // Trial still in flight
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(3); // Fresh window after closing
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void failedTrialReopens() {
+        fail(4);
+        now += 30_000;
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        now += 30_000;
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void ignoredTrialLetsAnotherThrough() {
+        fail(4);
+        now += 30_000;
+        assertTrue(breaker.allowRequest());
+        breaker.onIgnored();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.mlbbop.managers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class KeySchedulerTest {
+    @Test
+    public void spreadsRequestsOverKeys() {
+        KeyScheduler scheduler = new KeyScheduler(2);
+        int first = scheduler.acquire();
+        assertNotEquals(first, scheduler.acquire());
+    }
+
+    @Test
+    public void acquireExceptNeverReturnsTheExcludedKey() {
+        KeyScheduler single = new KeyScheduler(1);
+        assertEquals(-1, single.acquireExcept(single.acquire()));
+
+        KeyScheduler pair = new KeyScheduler(2);
+        pair.onRateLimited(1); // Cooling down, so not usable for a hedge either
+        assertEquals(-1, pair.acquireExcept(0));
+    }
+
+    @Test
+    public void acquireFallsBackToTheKeyThatRecoversFirst() {
+        KeyScheduler scheduler = new KeyScheduler(2);
+        scheduler.onRateLimited(0);
+        scheduler.onRateLimited(0); // Longer cooldown
+        scheduler.onRateLimited(1);
+        assertEquals(1, scheduler.acquire());
+    }
+}
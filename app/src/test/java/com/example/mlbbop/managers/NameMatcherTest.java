@@ -0,0 +1,174 @@
+package com.example.mlbbop.managers;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+// Checks NameMatcher against the regex TextWithImageHelper used to build, and times both.
+// Unit tests run with the module directory as working directory.
+public class NameMatcherTest {
+    private static final List<String> names = new ArrayList<>();
+    private static NameMatcher matcher;
+    private static Pattern pattern;
+
+    // Same names as TextWithImageHelper derives from R.drawable
+    @BeforeClass
+    public static void loadNames() {
+        String[] files = new File("src/main/res/drawable").list();
+        assertNotNull(files);
+        Arrays.sort(files);
+        for (String file : files) {
+            for (String key : DrawableNames.keysFor(file.substring(0, file.lastIndexOf('.')))) {
+                if (!names.contains(key))
+                    names.add(key);
+            }
+        }
+
+        int[] values = new int[names.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        matcher = new NameMatcher(names, values);
+
+        List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted, (s1, s2) -> Integer.compare(s2.length(), s1.length()));
+        StringBuilder sb = new StringBuilder("(?i)\\b(");
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i > 0)
+                sb.append('|');
+            sb.append(Pattern.quote(sorted.get(i)));
+        }
+        pattern = Pattern.compile(sb.append(")\\b").toString());
+    }
+
+    // start, end, value triples
+    private static int[] scan(String text) {
+        NameMatcher.Matches matches = new NameMatcher.Matches();
+        matcher.find(text, matches);
+        int[] found = new int[matches.count() * 3];
+        for (int i = 0; i < matches.count(); i++) {
+            found[3 * i] = matches.start(i);
+            found[3 * i + 1] = matches.end(i);
+            found[3 * i + 2] = matches.value(i);
+        }
+        return found;
+    }
+
+    private static int[] scanRegex(String text) {
+        List<Integer> found = new ArrayList<>();
+        Matcher m = pattern.matcher(text);
+        while (m.find()) {
+            found.add(m.start());
+            found.add(m.end());
+            found.add(names.indexOf(m.group().toLowerCase()));
+        }
+        int[] result = new int[found.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = found.get(i);
+        }
+        return result;
+    }
+
+    private static String transcript(int length, long seed) {
+        String[] filler = { "the", "build", "is", "strong", "against", "Gatotkaca's", "early", "game", "...",
+                "blade", "boots", "(core)", "\n", "1.", "x", "e", "s", "item:", "ban", "a" };
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length + 64);
+        while (sb.length() < length) {
+            String word = random.nextInt(3) == 0 ? names.get(random.nextInt(names.size()))
+                    : filler[random.nextInt(filler.length)];
+            if (random.nextInt(4) == 0)
+                word = word.toUpperCase();
+            sb.append(word);
+            // Sometimes glue words together to exercise the boundaries
+            sb.append(random.nextInt(8) == 0 ? "" : random.nextInt(6) == 0 ? ", " : " ");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void prefersLongestNameAtTheLeftmostStart() {
+        String text = "Yi Sun Shin counters Sun.";
+        int[] found = scan(text);
+        assertEquals(6, found.length);
+        assertEquals("yi sun shin", names.get(found[2])); // Not the "sun" inside it
+        assertEquals(0, found[0]);
+        assertEquals(11, found[1]);
+        assertEquals("sun", names.get(found[5]));
+        assertEquals("Sun", text.substring(found[3], found[4]));
+    }
+
+    @Test
+    public void respectsWordBoundaries() {
+        assertEquals(0, scan("Miyabi and Balmondo, miyamiya").length);
+        int[] found = scan("MIYA/zilong_ (Chang'e) x.borg");
+        assertEquals(9, found.length);
+        assertEquals("miya", names.get(found[2]));
+        assertEquals("chang'e", names.get(found[5]));
+        assertEquals("x.borg", names.get(found[8]));
+    }
+
+    @Test
+    public void findsHeroesByTheirInGameName() {
+        int[] found = scan("Julian flanks");
+        assertEquals(3, found.length);
+        assertEquals("julian", names.get(found[2])); // Drawable julian_dd
+    }
+
+    @Test
+    public void agreesWithRegex() {
+        for (long seed = 0; seed < 50; seed++) {
+            String text = transcript(4_000, seed);
+            assertArrayEquals("seed " + seed, scanRegex(text), scan(text));
+        }
+        assertArrayEquals(scanRegex(""), scan(""));
+    }
+
+    // Not a correctness check: prints how long both take on a long chat transcript.
+    // Takes seconds, so it only runs with -Dbenchmark=true.
+    @Test
+    public void benchmarkAgainstRegex() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        String text = transcript(500_000, 42);
+        NameMatcher.Matches matches = new NameMatcher.Matches();
+        int rounds = 20;
+        for (int warmup = 0; warmup < 5; warmup++) {
+            matcher.find(text, matches);
+            scanRegex(text);
+        }
+
+        long startNs = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            matcher.find(text, matches);
+        }
+        long automatonNs = (System.nanoTime() - startNs) / rounds;
+
+        startNs = System.nanoTime();
+        int regexMatches = 0;
+        for (int round = 0; round < rounds; round++) {
+            Matcher m = pattern.matcher(text);
+            regexMatches = 0;
+            while (m.find())
+                regexMatches++;
+        }
+        long regexNs = (System.nanoTime() - startNs) / rounds;
+
+        assertEquals(regexMatches, matches.count());
+        System.out.printf("%d names, %d chars, %d matches: automaton %.2f ms, regex %.2f ms (%.1fx)%n",
+                names.size(), text.length(), matches.count(), automatonNs / 1e6, regexNs / 1e6,
+                (double) regexNs / automatonNs);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.mlbbop.managers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class OptionsTagExtractorTest {
+
+    private static final class Result {
+        final StringBuilder text = new StringBuilder();
+        final List<List<String>> published = new ArrayList<>();
+    }
+
+    private static Result run(String... chunks) {
+        Result result = new Result();
+        OptionsTagExtractor extractor = new OptionsTagExtractor(result.published::add);
+        for (String chunk : chunks) {
+            extractor.feed(chunk, result.text);
+        }
+        extractor.finish(result.text);
+        return result;
+    }
+
+    private static void assertEverySplit(String response, String expectedText, List<List<String>> expectedOptions) {
+        for (int i = 0; i <= response.length(); i++) {
+            Result result = run(response.substring(0, i), response.substring(i));
+            assertEquals("split at " + i, expectedText, result.text.toString());
+            assertEquals("split at " + i, expectedOptions, result.published);
+        }
+    }
+
+    @Test
+    public void tagIsRemovedAndPublished_atEverySplit() {
+        assertEverySplit("Pick your hero. [OPTIONS: Layla | Tigreal | Chang'e]",
+                "Pick your hero. ",
+                Collections.singletonList(Arrays.asList("Layla", "Tigreal", "Chang'e")));
+    }
+
+    @Test
+    public void textAfterTagIsKept_atEverySplit() {
+        assertEverySplit("A [OPTIONS: Build|Tactics] B",
+                "A  B",
+                Collections.singletonList(Arrays.asList("Build", "Tactics")));
+    }
+
+    @Test
+    public void lookalikesAreReleased_atEverySplit() {
+        assertEverySplit("[OPT] [OPTIONS [[OPTIONS: x]",
+                "[OPT] [OPTIONS [",
+                Collections.singletonList(Collections.singletonList("x")));
+    }
+
+    @Test
+    public void tagCannotSpanLines_atEverySplit() {
+        assertEverySplit("[OPTIONS: a\nb]", "[OPTIONS: a\nb]", Collections.emptyList());
+    }
+
+    @Test
+    public void unterminatedTagIsReleasedOnFinish_atEverySplit() {
+        assertEverySplit("Done [OPTIONS: a | b", "Done [OPTIONS: a | b", Collections.emptyList());
+    }
+
+    @Test
+    public void everyThreeWaySplitMatchesSingleChunk() {
+        String response = "x[OPTIONS: a | | b]y[OPTIONS:c]";
+        Result whole = run(response);
+        assertEquals("xy", whole.text.toString());
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Collections.singletonList("c")), whole.published);
+
+        for (int i = 0; i <= response.length(); i++) {
+            for (int j = i; j <= response.length(); j++) {
+                Result split = run(response.substring(0, i), response.substring(i, j), response.substring(j));
+                assertEquals(whole.text.toString(), split.text.toString());
+                assertEquals(whole.published, split.published);
+            }
+        }
+    }
+
+    @Test
+    public void optionsArePublishedBeforeFinish() {
+        List<List<String>> published = new ArrayList<>();
+        OptionsTagExtractor extractor = new OptionsTagExtractor(published::add);
+        StringBuilder out = new StringBuilder();
+
+        extractor.feed("Hi [OPTIONS: Build", out);
+        assertEquals("Hi ", out.toString());
+        assertEquals(0, published.size());
+
+        extractor.feed(" ]", out);
+        assertEquals(Collections.singletonList(Collections.singletonList("Build")), published);
+    }
+}
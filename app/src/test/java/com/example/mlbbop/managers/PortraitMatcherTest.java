@@ -0,0 +1,208 @@
+package com.example.mlbbop.managers;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Builds synthetic draft screens from the bundled portraits and checks the heroes are read back,
+// and that the reply cache key (PerceptualHash.cacheKey) tells the drafts apart.
+// The screens are laid out with SlotLayout.DRAFT itself, so this checks the matcher, not whether
+// DRAFT's coordinates agree with real captures (they have not been checked against any yet).
+// Unit tests run with the module directory as working directory.
+public class PortraitMatcherTest {
+    private static final File DRAWABLES = new File("src/main/res/drawable");
+    private static final int WIDTH = 1600;
+    private static final int HEIGHT = 720;
+    private static final int CACHE_MAX_DISTANCE = 2; // GeminiHelper's
+    private static final String[] MATCH = { "aamon", "alucard", "beatrix", "chang_e", "x_borg",
+            "lapu_lapu", "yi_sun_shin", "miya", "tigreal", "zilong" };
+
+    private static PortraitMatcher matcher;
+    private static final List<String> names = new ArrayList<>();
+    private static final List<BufferedImage> portraits = new ArrayList<>();
+
+    @BeforeClass
+    public static void loadPortraits() throws IOException {
+        File[] files = DRAWABLES.listFiles((dir, name) -> name.endsWith(".png") && !name.contains("_png"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        List<int[]> pixels = new ArrayList<>();
+        for (File file : files) {
+            BufferedImage image = ImageIO.read(file);
+            names.add(file.getName().substring(0, file.getName().length() - 4));
+            portraits.add(image);
+            pixels.add(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()));
+        }
+        int[] widths = new int[names.size()];
+        int[] heights = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            widths[i] = portraits.get(i).getWidth();
+            heights[i] = portraits.get(i).getHeight();
+        }
+        matcher = new PortraitMatcher(names.toArray(new String[0]), pixels.toArray(new int[0][]), widths, heights);
+    }
+
+    // Dark noisy background with each hero scaled into its slot, off by up to jitter pixels
+    private static int[] draftScreen(String[] heroes, int jitter, long seed) {
+        Random random = new Random(seed);
+        BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int v = 20 + random.nextInt(30);
+                screen.setRGB(x, y, 0xff000000 | (v << 16) | (v << 8) | (v + 20));
+            }
+        }
+        Graphics2D g = screen.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        SlotLayout layout = SlotLayout.DRAFT;
+        int size = layout.size(HEIGHT);
+        for (int slot = 0; slot < heroes.length; slot++) {
+            if (heroes[slot] == null)
+                continue;
+            int dx = jitter > 0 ? random.nextInt(2 * jitter + 1) - jitter : 0;
+            int dy = jitter > 0 ? random.nextInt(2 * jitter + 1) - jitter : 0;
+            g.drawImage(portraits.get(names.indexOf(heroes[slot])), layout.left(slot, WIDTH, HEIGHT) + dx,
+                    layout.top(slot, HEIGHT) + dy, size, size, null);
+        }
+        g.dispose();
+        return screen.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+    }
+
+    @Test
+    public void recognisesAllTenHeroes() {
+        int[] screen = draftScreen(MATCH, 0, 1);
+        TeamRoster roster = matcher.recognize(screen, WIDTH, HEIGHT, SlotLayout.DRAFT);
+
+        for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+            assertEquals("slot " + slot, MATCH[slot], roster.hero(slot));
+        }
+        assertTrue(roster.isComplete());
+        assertEquals(Arrays.asList(MATCH).subList(0, 5), roster.allies());
+    }
+
+    @Test
+    public void toleratesMisplacedSlots() {
+        int[] screen = draftScreen(MATCH, 8, 2);
+        TeamRoster roster = matcher.recognize(screen, WIDTH, HEIGHT, SlotLayout.DRAFT);
+
+        for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+            assertEquals("slot " + slot, MATCH[slot], roster.hero(slot));
+        }
+        assertTrue(roster.isComplete());
+    }
+
+    @Test
+    public void emptySlotIsNotConfident() {
+        String[] picking = MATCH.clone();
+        picking[7] = null; // Not picked yet
+        int[] screen = draftScreen(picking, 0, 3);
+        TeamRoster roster = matcher.recognize(screen, WIDTH, HEIGHT, SlotLayout.DRAFT);
+
+        assertFalse(roster.isConfident(7));
+        assertFalse(roster.isComplete());
+        assertEquals(MATCH[6], roster.hero(6));
+    }
+
+    @Test
+    public void everyPortraitMatchesItself() {
+        int size = SlotLayout.DRAFT.size(HEIGHT);
+        for (int i = 0; i < names.size(); i++) {
+            BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(portraits.get(i), 0, 0, size, size, null);
+            g.dispose();
+            int[] window = scaled.getRGB(0, 0, size, size, null, 0, size);
+
+            PortraitMatcher.SlotMatch match = matcher.match(window, size, size, size);
+            assertEquals(names.get(i), matcher.name(match.hero));
+        }
+    }
+
+    private static long slotsHash(int[] screen) {
+        return PerceptualHash.slotsHash(screen, WIDTH, HEIGHT, SlotLayout.DRAFT, new int[PerceptualHash.GRID_SIZE]);
+    }
+
+    @Test
+    public void slotsHashIgnoresTheRestOfTheScreen() {
+        // Same draft over a different background
+        assertEquals(slotsHash(draftScreen(MATCH, 0, 4)), slotsHash(draftScreen(MATCH, 0, 5)));
+    }
+
+    @Test
+    public void slotsHashSeparatesDraftsInTheSameLayout() {
+        long hash = slotsHash(draftScreen(MATCH, 0, 6));
+
+        String[] swapped = MATCH.clone();
+        swapped[3] = "tigreal"; // Two picks differ
+        swapped[8] = "chang_e";
+        assertTrue(PerceptualHash.distance(hash, slotsHash(draftScreen(swapped, 0, 6))) > CACHE_MAX_DISTANCE);
+
+        String[] picking = MATCH.clone();
+        picking[9] = null;
+        assertTrue(PerceptualHash.distance(hash, slotsHash(draftScreen(picking, 0, 6))) > CACHE_MAX_DISTANCE);
+
+        // Random drafts never land within the cache's reach of each other
+        Random random = new Random(7);
+        List<Long> hashes = new ArrayList<>();
+        for (int draft = 0; draft < 20; draft++) {
+            String[] heroes = new String[TeamRoster.SLOTS];
+            for (int slot = 0; slot < heroes.length; slot++) {
+                heroes[slot] = names.get(random.nextInt(names.size()));
+            }
+            long other = slotsHash(draftScreen(heroes, 0, draft));
+            for (long previous : hashes) {
+                assertTrue(PerceptualHash.distance(previous, other) > CACHE_MAX_DISTANCE);
+            }
+            hashes.add(other);
+        }
+    }
+
+    private static long cacheKey(int[] screen) {
+        return PerceptualHash.cacheKey(screen, WIDTH, HEIGHT, SlotLayout.DRAFT, new int[PerceptualHash.GRID_SIZE]);
+    }
+
+    @Test
+    public void cacheKeySeparatesOtherScreensWithTheSamePortraits() {
+        int[] draft = draftScreen(MATCH, 0, 8);
+        assertEquals(cacheKey(draft), cacheKey(draft.clone()));
+
+        // Same portraits in the same places, but bright panels elsewhere, as on a loading screen
+        int[] other = draft.clone();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if ((x / 200 + y / 180) % 2 == 0 && !inSlot(x, y))
+                    other[y * WIDTH + x] = 0xffe0d0a0;
+            }
+        }
+        assertEquals(slotsHash(draft), slotsHash(other));
+        assertTrue(PerceptualHash.distance(cacheKey(draft), cacheKey(other)) > CACHE_MAX_DISTANCE);
+    }
+
+    private static boolean inSlot(int x, int y) {
+        int size = SlotLayout.DRAFT.size(HEIGHT);
+        for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+            int left = SlotLayout.DRAFT.left(slot, WIDTH, HEIGHT);
+            int top = SlotLayout.DRAFT.top(slot, HEIGHT);
+            if (x >= left && x < left + size && y >= top && y < top + size)
+                return true;
+        }
+        return false;
+    }
+}
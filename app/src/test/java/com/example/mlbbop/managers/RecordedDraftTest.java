@@ -0,0 +1,75 @@
+package com.example.mlbbop.managers;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+// Reads the heroes back from screenshots recorded on a device, which is what shows whether
+// SlotLayout.DRAFT matches the game. A fixture is a landscape pick and ban capture, name.png, and
+// name.txt beside it with the hero in each of the 10 slots, one drawable name per line, allies
+// first, "-" for a slot with nothing picked yet. Skipped while there are no fixtures.
+public class RecordedDraftTest {
+    private static final File FIXTURES = new File("src/test/resources/drafts");
+    private static final File DRAWABLES = new File("src/main/res/drawable");
+
+    @Test
+    public void recognisesRecordedDrafts() throws IOException {
+        File[] captures = FIXTURES.listFiles((dir, name) -> name.endsWith(".png"));
+        Assume.assumeTrue("No recorded drafts in " + FIXTURES, captures != null && captures.length > 0);
+        Arrays.sort(captures);
+        PortraitMatcher matcher = loadMatcher();
+
+        for (File capture : captures) {
+            String base = capture.getName().substring(0, capture.getName().length() - 4);
+            List<String> expected = Files.readAllLines(new File(FIXTURES, base + ".txt").toPath(),
+                    StandardCharsets.UTF_8);
+            assertEquals(base + ": slots listed", TeamRoster.SLOTS, expected.size());
+
+            BufferedImage image = ImageIO.read(capture);
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+            TeamRoster roster = matcher.recognize(pixels, width, height, SlotLayout.DRAFT);
+
+            for (int slot = 0; slot < TeamRoster.SLOTS; slot++) {
+                String hero = expected.get(slot).trim();
+                if (hero.equals("-")) {
+                    assertFalse(base + ": slot " + slot + " is empty", roster.isConfident(slot));
+                } else {
+                    assertEquals(base + ": slot " + slot, hero, roster.hero(slot));
+                }
+            }
+        }
+    }
+
+    private static PortraitMatcher loadMatcher() throws IOException {
+        File[] files = DRAWABLES.listFiles((dir, name) -> name.endsWith(".png") && !name.contains("_png"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        String[] names = new String[files.length];
+        int[][] pixels = new int[files.length][];
+        int[] widths = new int[files.length];
+        int[] heights = new int[files.length];
+        for (int i = 0; i < files.length; i++) {
+            BufferedImage image = ImageIO.read(files[i]);
+            names[i] = files[i].getName().substring(0, files[i].getName().length() - 4);
+            widths[i] = image.getWidth();
+            heights[i] = image.getHeight();
+            pixels[i] = image.getRGB(0, 0, widths[i], heights[i], null, 0, widths[i]);
+        }
+        return new PortraitMatcher(names, pixels, widths, heights);
+    }
+}
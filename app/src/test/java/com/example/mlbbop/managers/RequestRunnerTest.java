@@ -0,0 +1,239 @@
+package com.example.mlbbop.managers;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RequestRunnerTest {
+    private static final long TIMEOUT_MS = 1_000;
+    private static final long RETRY_BASE_MS = 100;
+    private static final RequestRunner.ReplyKey KEY = new RequestRunner.ReplyKey("model|text", 0x1234L, "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ManualTimer timer;
+    private FakeTransport transport;
+    private RecordingCallback callback;
+    private HedgePolicy hedgePolicy;
+
+    // Stands in for the SDK's 429 exception
+    private static class RateLimitException extends RuntimeException {
+    }
+
+    @Before
+    public void setUp() {
+        timer = new ManualTimer();
+        transport = new FakeTransport();
+        callback = new RecordingCallback();
+        hedgePolicy = new HedgePolicy(95, 1.0, 500); // Hedges after 500 ms, within TIMEOUT_MS, as often as needed
+    }
+
+    private RequestRunner<String> runner(int keys, DiskResponseCache diskCache) {
+        // A breaker that stays closed, so every test reaches the transport
+        return new RequestRunner<>(transport, Runnable::run, timer, timer, new KeyScheduler(keys),
+                new CircuitBreaker(10, 100, 1.0, 30_000, timer), hedgePolicy, diskCache,
+                Arrays.asList(IOException.class), Collections.singletonList(RateLimitException.class),
+                TIMEOUT_MS, 1, RETRY_BASE_MS);
+    }
+
+    @Test
+    public void stalledStreamRearmsThenTimesOut() {
+        runner(1, null).send("prompt", KEY, false, callback);
+        FakeCall call = transport.calls.get(0);
+        timer.advance(600);
+        call.listener.onChunk("Hello");
+        timer.advance(400); // First deadline: only 400 ms idle, so it is pushed back
+        assertFalse(call.cancelled);
+        assertNull(callback.error);
+        timer.advance(599);
+        assertFalse(call.cancelled);
+        timer.advance(1); // 1000 ms since the chunk
+        assertTrue(call.cancelled);
+        assertTrue(callback.error instanceof TimeoutException);
+        assertEquals(Collections.singletonList("Hello"), callback.chunks);
+        assertEquals(1, transport.calls.size()); // Part of the reply is shown, so no retry
+    }
+
+    @Test
+    public void retryableErrorIsRetried() {
+        runner(1, null).send("prompt", KEY, false, callback);
+        transport.calls.get(0).listener.onError(new IOException("connection reset"));
+        assertEquals(1, transport.calls.size());
+        timer.advance(RETRY_BASE_MS * 3 / 2); // Base delay plus the most jitter
+        assertEquals(2, transport.calls.size());
+        transport.calls.get(1).listener.onComplete("answer");
+        assertEquals("answer", callback.reply);
+        assertFalse(callback.offline);
+        assertNull(callback.error);
+    }
+
+    @Test
+    public void otherErrorIsNotRetried() {
+        runner(1, null).send("prompt", KEY, false, callback);
+        IllegalArgumentException error = new IllegalArgumentException("429 in the text");
+        transport.calls.get(0).listener.onError(error);
+        timer.advance(10_000);
+        assertEquals(1, transport.calls.size());
+        assertEquals(error, callback.error);
+        assertNull(callback.reply);
+    }
+
+    @Test
+    public void rateLimitedKeyIsRotatedAway() {
+        runner(2, null).send("prompt", KEY, false, callback);
+        FakeCall first = transport.calls.get(0);
+        first.listener.onError(new RuntimeException(new RateLimitException()));
+        assertEquals(2, transport.calls.size()); // Straight away, without a backoff
+        FakeCall second = transport.calls.get(1);
+        assertNotEquals(first.key, second.key);
+        second.listener.onComplete("answer");
+        assertEquals("answer", callback.reply);
+    }
+
+    @Test
+    public void failureFallsBackToDiskCache() throws IOException {
+        DiskResponseCache diskCache = new DiskResponseCache(folder.newFile("cache.log"), 64 * 1024, 0,
+                60_000);
+        diskCache.put(KEY.imageHash, KEY.variant, KEY.question, "cached answer");
+        runner(1, diskCache).send("prompt", KEY, false, callback);
+        transport.calls.get(0).listener.onError(new IllegalStateException("bad request"));
+        assertEquals("cached answer", callback.reply);
+        assertTrue(callback.offline);
+        assertTrue(callback.firstChunk);
+        assertNull(callback.error);
+    }
+
+    @Test
+    public void slowRequestIsHedgedOnAnotherKey() {
+        runner(2, null).send("prompt", KEY, true, callback);
+        timer.advance(500);
+        assertEquals(2, transport.calls.size());
+        FakeCall first = transport.calls.get(0);
+        FakeCall hedge = transport.calls.get(1);
+        assertNotEquals(first.key, hedge.key);
+        hedge.listener.onComplete("answer");
+        assertTrue(first.cancelled); // Lost the race
+        assertEquals("answer", callback.reply);
+        assertEquals(1, hedgePolicy.getHedgesWon());
+    }
+
+    @Test
+    public void noHedgeWithoutAnotherKey() {
+        runner(1, null).send("prompt", KEY, true, callback);
+        timer.advance(500);
+        assertEquals(1, transport.calls.size());
+        assertEquals(0, hedgePolicy.getHedgesFired()); // The hedge budget is not spent
+        transport.calls.get(0).listener.onComplete("answer");
+        assertEquals("answer", callback.reply);
+    }
+
+    // Virtual time: scheduled tasks run in order as advance() passes them
+    private static final class ManualTimer implements RequestRunner.Scheduler, CircuitBreaker.Clock {
+        private long now = 0;
+        private final List<long[]> due = new ArrayList<>(); // {time, index into tasks}
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public long nowMs() {
+            return now;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            due.add(new long[] { now + delayMs, tasks.size() });
+            tasks.add(task);
+        }
+
+        void advance(long ms) {
+            long until = now + ms;
+            while (true) {
+                long[] next = null;
+                for (long[] entry : due) {
+                    if (entry[0] <= until && (next == null || entry[0] < next[0]))
+                        next = entry;
+                }
+                if (next == null)
+                    break;
+                due.remove(next);
+                now = next[0];
+                tasks.get((int) next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    private static final class FakeCall implements RequestRunner.Call {
+        final int key;
+        final RequestRunner.Listener listener;
+        boolean cancelled = false;
+
+        FakeCall(int key, RequestRunner.Listener listener) {
+            this.key = key;
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static final class FakeTransport implements RequestRunner.Transport<String> {
+        final List<FakeCall> calls = new ArrayList<>();
+
+        @Override
+        public RequestRunner.Call send(int key, String prompt, RequestRunner.Listener listener) {
+            FakeCall call = new FakeCall(key, listener);
+            calls.add(call);
+            return call;
+        }
+    }
+
+    private static final class RecordingCallback implements RequestRunner.Callback {
+        final List<String> chunks = new ArrayList<>();
+        boolean firstChunk = false;
+        String reply;
+        boolean offline;
+        Throwable error;
+
+        @Override
+        public void onRequestSent() {
+        }
+
+        @Override
+        public void onFirstChunk() {
+            firstChunk = true;
+        }
+
+        @Override
+        public void onPartialResponse(String chunk) {
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onReply(String text, boolean offline) {
+            this.reply = text;
+            this.offline = offline;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+    }
+}